@@ -0,0 +1,183 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.graphite.GraphiteSender;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Graphite sender that only queues datapoints on the reporter thread and ships them in batches from its own thread,
+ * so a slow or unreachable Graphite never stalls reporting. Datapoints that do not fit in the bounded queue are
+ * dropped, datapoints shipped more than {@code lateAfterSeconds} after their timestamp are counted as late, and
+ * batches the transport failed to write are counted as failed; all three are exposed in the registry.
+ */
+@Slf4j
+class AsyncGraphiteSender implements GraphiteSender {
+
+	static final int MAX_NAMES = 10_000;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final GraphiteSender transport;
+
+	private final BlockingQueue<Datapoint> queue;
+
+	private final int batchSize;
+
+	private final long lateAfterSeconds;
+
+	// names sanitized once and shared by every datapoint queued under them; the TCP transport writes them as they are
+	private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+
+	private final Counter dropped;
+
+	private final Counter late;
+
+	private final Counter failed;
+
+	private final Counter sent;
+
+	private volatile Thread shipper;
+
+	AsyncGraphiteSender(GraphiteSender transport, int queueCapacity, int batchSize, long lateAfterSeconds,
+			MetricRegistry registry) {
+		this.transport = transport;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.lateAfterSeconds = lateAfterSeconds;
+		this.dropped = registry.counter("graphite.dropped");
+		this.late = registry.counter("graphite.late");
+		this.failed = registry.counter("graphite.failed");
+		this.sent = registry.counter("graphite.sent");
+		registry.register("graphite.queued", (Gauge<Integer>) queue::size);
+	}
+
+	@Override
+	public synchronized void connect() {
+		if (shipper == null) {
+			shipper = new Thread(this::ship, "graphite-sender");
+			shipper.setDaemon(true);
+			shipper.start();
+		}
+	}
+
+	@Override
+	public boolean isConnected() {
+		return shipper != null;
+	}
+
+	@Override
+	public void send(String name, String value, long timestamp) {
+		if (!queue.offer(new Datapoint(name(name), value, timestamp))) {
+			dropped.inc();
+		}
+	}
+
+	// batches are flushed by the shipping thread
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public int getFailures() {
+		return (int) Math.min(failed.getCount(), Integer.MAX_VALUE);
+	}
+
+	// the reporter closes its sender after every failed report; the shipping thread outlives that
+	@Override
+	public void close() {
+	}
+
+	synchronized void shutdown() {
+		if (shipper != null) {
+			shipper.interrupt();
+			shipper = null;
+		}
+	}
+
+	private String name(String name) {
+		String sanitized = names.get(name);
+		if (sanitized == null) {
+			sanitized = WHITESPACE.matcher(name).replaceAll("-");
+			if (names.size() < MAX_NAMES) {
+				names.putIfAbsent(name, sanitized);
+			}
+		}
+		return sanitized;
+	}
+
+	private void ship() {
+		List<Datapoint> batch = new ArrayList<>(batchSize);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Datapoint first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				write(batch);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				batch.clear();
+			}
+		}
+		try {
+			transport.close();
+		} catch (IOException ex) {
+			log.debug("Could not close Graphite transport", ex);
+		}
+	}
+
+	private void write(List<Datapoint> batch) {
+		long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+		try {
+			if (!transport.isConnected()) {
+				transport.connect();
+			}
+			for (Datapoint datapoint : batch) {
+				if (now - datapoint.timestamp > lateAfterSeconds) {
+					late.inc();
+				}
+				transport.send(datapoint.name, datapoint.value, datapoint.timestamp);
+			}
+			transport.flush();
+			sent.inc(batch.size());
+		} catch (IOException | RuntimeException ex) {
+			failed.inc(batch.size());
+			log.warn("Could not ship {} datapoints to Graphite", batch.size(), ex);
+			try {
+				transport.close();
+			} catch (IOException closing) {
+				log.debug("Could not close Graphite transport", closing);
+			}
+		}
+	}
+
+	static final class Datapoint {
+
+		final String name;
+
+		final String value;
+
+		final long timestamp;
+
+		Datapoint(String name, String value, long timestamp) {
+			this.name = name;
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example;
+
+import lombok.Value;
+
+@Value
+class BatchItemResult {
+
+	enum Status { CREATED, CONFLICT }
+
+	int index;
+
+	String name;
+
+	Status status;
+
+	Long id;
+
+	static BatchItemResult created(int index, Reservation reservation) {
+		return new BatchItemResult(index, reservation.getName(), Status.CREATED, reservation.getId());
+	}
+
+	static BatchItemResult conflict(int index, Reservation reservation) {
+		return new BatchItemResult(index, reservation.getName(), Status.CONFLICT, null);
+	}
+}
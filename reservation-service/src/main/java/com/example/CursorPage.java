@@ -0,0 +1,45 @@
+package com.example;
+
+import static org.springframework.http.HttpStatus.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import lombok.Value;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Value
+class CursorPage<T> {
+
+	List<T> content;
+
+	String next;
+
+	static String encode(Long id) {
+		return Base64.getUrlEncoder().withoutPadding()
+			.encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8));
+	}
+
+	static Long decode(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			if (!value.startsWith("id:")) {
+				throw new InvalidCursor(cursor);
+			}
+			return Long.valueOf(value.substring(3));
+		} catch (IllegalArgumentException ex) {
+			throw new InvalidCursor(cursor);
+		}
+	}
+}
+
+@ResponseStatus(BAD_REQUEST)
+class InvalidCursor extends RuntimeException {
+	InvalidCursor(String cursor) {
+		super("Invalid cursor '" + cursor + "'!");
+	}
+}
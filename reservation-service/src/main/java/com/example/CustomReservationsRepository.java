@@ -0,0 +1,50 @@
+package com.example;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface CustomReservationsRepository {
+
+	Optional<ReservationView> findViewById(Long id);
+
+	/**
+	 * Like {@link #findViewById}, but bypasses the query cache, for reads a write depends on.
+	 */
+	Optional<ReservationView> findCurrentViewById(Long id);
+
+	Page<ReservationView> findViews(Predicate predicate, Pageable pageable);
+
+	List<ReservationView> findViewsOrderedById(Predicate predicate, int limit);
+
+	Slice<ReservationView> findViewSlice(Predicate predicate, Pageable pageable);
+
+	/**
+	 * Sets the non-null columns and bumps the version in a single statement.
+	 * Returns the number of affected rows, zero when the id or version does not match.
+	 */
+	long update(Long id, Long version, String name, String lang);
+
+	/**
+	 * Like {@link #update}, but only matches a row whose lang already equals {@code lang}.
+	 */
+	long updateKeepingLang(Long id, Long version, String name, String lang);
+
+	/**
+	 * Locks and deletes the rows with the given ids in one transaction.
+	 * Returns the lang of every row this call deleted; rows already deleted by someone else are not included.
+	 */
+	List<String> deleteReturningLangs(Collection<Long> ids);
+
+	/**
+	 * Restarts the id sequence after the highest existing id, for rows inserted before the sequence existed.
+	 * Returns whether it had to be restarted. Runs DDL, which H2 commits immediately.
+	 */
+	boolean alignIdSequence();
+
+}
@@ -3,8 +3,10 @@ package com.example;
 import java.util.concurrent.TimeUnit;
 
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.graphite.Graphite;
 import com.codahale.metrics.graphite.GraphiteReporter;
+import com.codahale.metrics.graphite.GraphiteSender;
+import com.codahale.metrics.graphite.GraphiteUDP;
+import com.codahale.metrics.graphite.PickledGraphite;
 import lombok.Data;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -18,21 +20,48 @@ import org.springframework.context.annotation.Profile;
 @EnableConfigurationProperties(GraphiteConfig.class)
 public class GraphiteConfiguration {
 
+	@Bean(destroyMethod = "shutdown")
+	AsyncGraphiteSender graphiteSender(MetricRegistry registry, GraphiteConfig graphite) {
+		return new AsyncGraphiteSender(transport(graphite), graphite.queueCapacity, graphite.batchSize,
+			Math.max(1, TimeUnit.MILLISECONDS.toSeconds(graphite.intervalMs)), registry);
+	}
+
 	@Bean
-	GraphiteReporter graphiteReporter(MetricRegistry registry, GraphiteConfig graphite) {
+	GraphiteReporter graphiteReporter(MetricRegistry registry, GraphiteConfig graphite, AsyncGraphiteSender sender) {
 		GraphiteReporter reporter = GraphiteReporter.forRegistry(registry)
 				.prefixedWith("reservations")
-				.build(new Graphite(graphite.host, graphite.port));
-		reporter.start(2, TimeUnit.SECONDS);
+				.build(sender);
+		reporter.start(graphite.intervalMs, TimeUnit.MILLISECONDS);
 		return reporter;
 	}
+
+	static GraphiteSender transport(GraphiteConfig graphite) {
+		switch (graphite.transport) {
+			case UDP:
+				return new GraphiteUDP(graphite.host, graphite.port);
+			case PICKLE:
+				return new PickledGraphite(graphite.host, graphite.port, graphite.batchSize);
+			default:
+				return new PlaintextGraphite(graphite.host, graphite.port);
+		}
+	}
 }
 
 @Data
 @ConfigurationProperties(prefix = "graphite")
 class GraphiteConfig {
 
+	enum Transport { TCP, UDP, PICKLE }
+
 	String host;
 
 	int port;
+
+	Transport transport = Transport.TCP;
+
+	long intervalMs = 2_000;
+
+	int queueCapacity = 10_000;
+
+	int batchSize = 500;
 }
@@ -0,0 +1,135 @@
+package com.example;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Reservoir recording every value into an HdrHistogram {@link Recorder}, so updates are wait-free and do not
+ * allocate. A snapshot covers the values recorded during the last completed interval of {@code intervalNanos}; reads
+ * within the same interval (the reporter, the actuator) all see that snapshot instead of stealing each other's values.
+ * Values above the highest trackable value are recorded as that value.
+ */
+class HdrHistogramReservoir implements Reservoir {
+
+	private final Recorder recorder;
+
+	private final long highestTrackableValue;
+
+	private final long intervalNanos;
+
+	private volatile Snapshot snapshot;
+
+	private volatile long flippedAt;
+
+	HdrHistogramReservoir(long highestTrackableValue, int significantDigits, long interval, TimeUnit unit) {
+		this.recorder = new Recorder(1, highestTrackableValue, significantDigits);
+		this.highestTrackableValue = highestTrackableValue;
+		this.intervalNanos = unit.toNanos(interval);
+		this.snapshot = new HdrSnapshot(recorder.getIntervalHistogram());
+		this.flippedAt = System.nanoTime();
+	}
+
+	@Override
+	public int size() {
+		return getSnapshot().size();
+	}
+
+	@Override
+	public void update(long value) {
+		recorder.recordValue(Math.max(1, Math.min(value, highestTrackableValue)));
+	}
+
+	@Override
+	public Snapshot getSnapshot() {
+		if (System.nanoTime() - flippedAt >= intervalNanos) {
+			flip();
+		}
+		return snapshot;
+	}
+
+	private synchronized void flip() {
+		long now = System.nanoTime();
+		if (now - flippedAt < intervalNanos) {
+			return;
+		}
+		// a fresh histogram per interval, since readers may still hold the previous snapshot
+		snapshot = new HdrSnapshot(recorder.getIntervalHistogram());
+		flippedAt = now;
+	}
+
+	static class HdrSnapshot extends Snapshot {
+
+		private final Histogram histogram;
+
+		HdrSnapshot(Histogram histogram) {
+			this.histogram = histogram;
+		}
+
+		@Override
+		public double getValue(double quantile) {
+			return histogram.getValueAtPercentile(quantile * 100.0);
+		}
+
+		// one entry per distinct recorded bucket, not per recorded value
+		@Override
+		public long[] getValues() {
+			long[] values = new long[countBuckets()];
+			int i = 0;
+			for (HistogramIterationValue value : histogram.recordedValues()) {
+				values[i++] = value.getValueIteratedTo();
+			}
+			return values;
+		}
+
+		@Override
+		public int size() {
+			return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+		}
+
+		@Override
+		public long getMax() {
+			return histogram.getMaxValue();
+		}
+
+		@Override
+		public double getMean() {
+			return histogram.getMean();
+		}
+
+		@Override
+		public long getMin() {
+			return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+		}
+
+		@Override
+		public double getStdDev() {
+			return histogram.getStdDeviation();
+		}
+
+		@Override
+		public void dump(OutputStream output) {
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+			for (HistogramIterationValue value : histogram.recordedValues()) {
+				out.printf("%d\t%d%n", value.getValueIteratedTo(), value.getCountAtValueIteratedTo());
+			}
+			out.flush();
+		}
+
+		private int countBuckets() {
+			int count = 0;
+			for (HistogramIterationValue ignored : histogram.recordedValues()) {
+				count++;
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.example;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reservation counts per language, maintained incrementally by the service and reconciled with the database
+ * at startup and periodically, so drift from writes that bypass the service, and from single deletes of rows
+ * whose language the service did not have cached, is bounded. A rebuild only takes back the adjustments it has
+ * seen, so updates arriving while the database is counted are kept.
+ */
+@Slf4j
+@Component
+class LanguageCounts {
+
+	private final ReservationsRepository reservations;
+
+	private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+	LanguageCounts(ReservationsRepository reservations) {
+		this.reservations = reservations;
+	}
+
+	void increment(String lang) {
+		add(lang, 1);
+	}
+
+	void decrement(String lang) {
+		add(lang, -1);
+	}
+
+	void moved(String from, String to) {
+		if (from != null && from.equals(to)) {
+			return;
+		}
+		add(from, -1);
+		add(to, 1);
+	}
+
+	void removed(Collection<String> langs) {
+		langs.forEach(this::decrement);
+	}
+
+	Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new TreeMap<>();
+		counts.forEach((lang, count) -> {
+			long value = count.sum();
+			if (value > 0) {
+				snapshot.put(lang, value);
+			}
+		});
+		return snapshot;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${reservations.langs.reconcile-interval-ms:600000}",
+		fixedDelayString = "${reservations.langs.reconcile-interval-ms:600000}")
+	public void rebuild() {
+		try {
+			Map<String, Long> seen = new HashMap<>();
+			counts.forEach((lang, count) -> seen.put(lang, count.sum()));
+			Map<String, Long> fresh = new TreeMap<>();
+			for (Object[] row : reservations.countByLang()) {
+				if (row[0] != null) {
+					fresh.put((String) row[0], ((Number) row[1]).longValue());
+				}
+			}
+			Set<String> langs = new HashSet<>(seen.keySet());
+			langs.addAll(fresh.keySet());
+			for (String lang : langs) {
+				add(lang, fresh.getOrDefault(lang, 0L) - seen.getOrDefault(lang, 0L));
+			}
+		} catch (RuntimeException ex) {
+			log.warn("Could not rebuild language counts", ex);
+		}
+	}
+
+	private void add(String lang, long delta) {
+		if (lang != null) {
+			counts.computeIfAbsent(lang, key -> new LongAdder()).add(delta);
+		}
+	}
+}
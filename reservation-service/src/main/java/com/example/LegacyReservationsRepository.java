@@ -1,9 +1,16 @@
 package com.example;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface LegacyReservationsRepository {
 
 	List<Reservation> findByLang(String lang);
 
+	/**
+	 * Scrolls reservations for the given language, detaching each one once consumed.
+	 * Must be called within a transaction and the stream must be closed.
+	 */
+	Stream<Reservation> streamByLang(String lang);
+
 }
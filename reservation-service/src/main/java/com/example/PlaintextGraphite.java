@@ -0,0 +1,102 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import com.codahale.metrics.graphite.Graphite;
+import com.codahale.metrics.graphite.GraphiteSender;
+
+/**
+ * Graphite plaintext protocol over TCP, writing each datapoint as a {@code name value timestamp} line straight into
+ * a buffered socket stream. Unlike {@link Graphite} it does not run a sanitizing regex over every name and value;
+ * callers pass names that are already safe, as {@link AsyncGraphiteSender} does once per distinct name.
+ */
+class PlaintextGraphite implements GraphiteSender {
+
+	private final String host;
+
+	private final int port;
+
+	private Socket socket;
+
+	private Writer writer;
+
+	private int failures;
+
+	PlaintextGraphite(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	@Override
+	public void connect() throws IOException {
+		if (isConnected()) {
+			throw new IllegalStateException("Already connected");
+		}
+		// resolved on every connect, so a moved Graphite host is picked up after a failure
+		Socket connecting = new Socket();
+		try {
+			connecting.connect(new InetSocketAddress(host, port));
+			writer = new BufferedWriter(new OutputStreamWriter(connecting.getOutputStream(), StandardCharsets.UTF_8));
+			socket = connecting;
+		} catch (IOException ex) {
+			connecting.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean isConnected() {
+		return socket != null && socket.isConnected() && !socket.isClosed();
+	}
+
+	@Override
+	public void send(String name, String value, long timestamp) throws IOException {
+		try {
+			writer.write(name);
+			writer.write(' ');
+			writer.write(value);
+			writer.write(' ');
+			writer.write(Long.toString(timestamp));
+			writer.write('\n');
+			failures = 0;
+		} catch (IOException ex) {
+			failures++;
+			throw ex;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+	@Override
+	public int getFailures() {
+		return failures;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+		} catch (IOException ex) {
+			// the socket is closed below either way
+		} finally {
+			if (socket != null) {
+				socket.close();
+			}
+			writer = null;
+			socket = null;
+		}
+	}
+}
@@ -1,33 +1,93 @@
 package com.example;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+import java.util.Locale;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
 @Table(uniqueConstraints = {
-	@UniqueConstraint(columnNames = "name")
+	@UniqueConstraint(name = Reservation.NAME_CONSTRAINT, columnNames = "name")
+}, indexes = {
+	@Index(name = "idx_reservation_lang", columnList = "lang"),
+	@Index(name = "idx_reservation_name_key", columnList = "name_key"),
+	@Index(name = "idx_reservation_lang_key", columnList = "lang_key")
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Reservation.CACHE_REGION)
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 class Reservation {
 
-	@Id @GeneratedValue
+	static final String CACHE_REGION = "reservation";
+
+	static final String QUERY_CACHE_REGION = "reservation-queries";
+
+	static final String NAME_CONSTRAINT = "uk_reservation_name";
+
+	static final String ID_SEQUENCE = "reservation_seq";
+
+	@Id
+	@GeneratedValue(generator = "reservation_seq")
+	@GenericGenerator(name = "reservation_seq", strategy = "enhanced-sequence", parameters = {
+		@Parameter(name = "sequence_name", value = ID_SEQUENCE),
+		@Parameter(name = "increment_size", value = "50"),
+		@Parameter(name = "optimizer", value = "pooled-lo")
+	})
 	private Long id;
 
 	private String name;
 
 	private String lang;
 
+	@Version
+	private Long version;
+
+	// lower-cased copies of name/lang, so case-insensitive filters can use a plain index
+	@JsonIgnore
+	@Setter(AccessLevel.NONE)
+	@Column(name = "name_key")
+	private String nameKey;
+
+	@JsonIgnore
+	@Setter(AccessLevel.NONE)
+	@Column(name = "lang_key")
+	private String langKey;
+
 	Reservation(String name, String lang) {
 		this.name = name;
 		this.lang = lang;
 	}
+
+	Reservation(Long id, String name, String lang) {
+		this(name, lang);
+		this.id = id;
+	}
+
+	@PrePersist
+	@PreUpdate
+	void normalize() {
+		this.nameKey = normalize(name);
+		this.langKey = normalize(lang);
+	}
+
+	static String normalize(String value) {
+		return value == null ? null : value.toLowerCase(Locale.ROOT);
+	}
 }
@@ -0,0 +1,166 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+@Configuration
+@EnableConfigurationProperties(ReservationCacheConfig.class)
+public class ReservationCacheConfiguration {
+
+	@Bean
+	ReservationCache reservationCache(MetricRegistry registry, ReservationCacheConfig config) {
+		return new ReservationCache(config.maximumSize, config.expireAfterWriteSeconds,
+			config.missingExpireAfterWriteSeconds, config.pageMaximumSize, registry);
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.cache")
+class ReservationCacheConfig {
+
+	long maximumSize = 10_000;
+
+	long expireAfterWriteSeconds = 60;
+
+	long missingExpireAfterWriteSeconds = 5;
+
+	long pageMaximumSize = 1_000;
+}
+
+/**
+ * Bounded W-TinyLFU cache of reservation views by id, reporting its stats to the metric registry.
+ * Ids found missing are remembered for a short while, so repeated 404s are answered from memory; an id is not
+ * remembered when any write committed while it was being looked up.
+ * List pages are keyed by a write generation that every invalidation bumps, so any write retires all of them.
+ * Callers invalidate once their write has committed, so a page or tag read under a generation is never older than it.
+ * <p>
+ * The generation, and so the list ETag built from {@link #generationTag()}, is local to this instance: behind a load
+ * balancer, conditional list requests only get a 304 with sticky routing, and are otherwise answered in full. Nothing
+ * shared can stand in for it cheaply, because change-log ids are not allocated in commit order, so a tag derived from
+ * the latest one could stay the same across a write and answer 304 with a stale page.
+ */
+class ReservationCache {
+
+	private final Cache<Long, ReservationView> views;
+
+	private final Cache<Long, Boolean> missing;
+
+	private final Counter missingHits;
+
+	private final Cache<List<Object>, Page<ReservationView>> pages;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	// tells generations of different instances and restarts apart, so one instance never answers 304 to another's tag
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	ReservationCache(long maximumSize, long expireAfterWriteSeconds, long missingExpireAfterWriteSeconds,
+			long pageMaximumSize, MetricRegistry registry) {
+		this.views = Caffeine.newBuilder()
+			.maximumSize(maximumSize)
+			.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+			.recordStats()
+			.build();
+		this.missing = Caffeine.newBuilder()
+			.maximumSize(maximumSize)
+			.expireAfterWrite(missingExpireAfterWriteSeconds, TimeUnit.SECONDS)
+			.build();
+		this.pages = Caffeine.newBuilder()
+			.maximumSize(pageMaximumSize)
+			.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+			.recordStats()
+			.build();
+		this.missingHits = registry.counter("cache.missing.hits");
+		registry.register("cache.missing.size", (Gauge<Long>) missing::estimatedSize);
+		registry.register("cache.pages.hit-rate", (Gauge<Double>) () -> pages.stats().hitRate());
+		registry.register("cache.pages.generation", (Gauge<Long>) generation::get);
+		registry.register("cache.views.hit-rate", (Gauge<Double>) () -> views.stats().hitRate());
+		registry.register("cache.views.miss-rate", (Gauge<Double>) () -> views.stats().missRate());
+		registry.register("cache.views.evictions", (Gauge<Long>) () -> views.stats().evictionCount());
+		registry.register("cache.views.size", (Gauge<Long>) views::estimatedSize);
+	}
+
+	Optional<ReservationView> get(Long id, Function<Long, Optional<ReservationView>> loader) {
+		if (missing.getIfPresent(id) != null) {
+			missingHits.inc();
+			return Optional.empty();
+		}
+		long seen = generation.get();
+		ReservationView view = views.get(id, key -> loader.apply(key).orElse(null));
+		if (view == null) {
+			missing.put(id, Boolean.TRUE);
+			// a write committed while loading may have evicted the id before the put; drop it rather than hide the row
+			if (generation.get() != seen) {
+				missing.invalidate(id);
+			}
+		}
+		return Optional.ofNullable(view);
+	}
+
+	Optional<ReservationView> peek(Long id) {
+		return Optional.ofNullable(views.getIfPresent(id));
+	}
+
+	Page<ReservationView> getPage(String name, String lang, Pageable pageable,
+			Supplier<Page<ReservationView>> loader) {
+		List<Object> key = Arrays.asList(generation.get(),
+			Reservation.normalize(name), Reservation.normalize(lang), pageable);
+		return pages.get(key, k -> loader.get());
+	}
+
+	long generation() {
+		return generation.get();
+	}
+
+	// only fills in views read before any write that happened since, so a warm-up cannot cache a stale view
+	void putAll(Collection<ReservationView> loaded, long seenGeneration) {
+		for (ReservationView view : loaded) {
+			if (generation.get() != seenGeneration) {
+				return;
+			}
+			views.asMap().putIfAbsent(view.getId(), view);
+		}
+	}
+
+	String generationTag() {
+		return epoch + "-" + generation.get();
+	}
+
+	void invalidate(Long id) {
+		generation.incrementAndGet();
+		views.invalidate(id);
+		missing.invalidate(id);
+	}
+
+	// for when nothing was written: drops what is known about the id but keeps pages and the list tag
+	void evictView(Long id) {
+		views.invalidate(id);
+		missing.invalidate(id);
+	}
+
+	void invalidateAll(Iterable<Long> ids) {
+		generation.incrementAndGet();
+		views.invalidateAll(ids);
+		missing.invalidateAll(ids);
+	}
+}
@@ -0,0 +1,173 @@
+package com.example;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Invalidation channel between instances sharing the database: every service write appends the ids it touched,
+ * and each node tails the table and evicts those ids from its own caches, Hibernate's second-level entity and query
+ * caches included.
+ * <p>
+ * Writes append once they have committed, in a transaction of their own, so a failed append never fails the write;
+ * its ids then stay stale on other nodes until their cache TTL expires.
+ * <p>
+ * Change ids are not allocated in commit order across nodes, so every poll re-reads a time window
+ * wide enough to cover in-flight transactions and clock skew, skipping changes it already applied.
+ */
+@Slf4j
+@Component
+class ReservationChangeLog {
+
+	static final int BATCH_SIZE = 500;
+
+	private final String node = UUID.randomUUID().toString();
+
+	private final ReservationChangesRepository changes;
+
+	private final ReservationCache cache;
+
+	private final Cache secondLevel;
+
+	private final TransactionTemplate requiresNew;
+
+	private final long windowMillis;
+
+	private final long retentionMillis;
+
+	private final Histogram lag;
+
+	private final Map<Long, Long> applied = new ConcurrentHashMap<>();
+
+	private volatile long lastPoll = System.currentTimeMillis();
+
+	ReservationChangeLog(ReservationChangesRepository changes, ReservationCache cache,
+			EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+			MetricRegistry registry,
+			@Value("${reservations.change-log.window-ms:5000}") long windowMillis,
+			@Value("${reservations.change-log.retention-ms:3600000}") long retentionMillis) {
+		this.changes = changes;
+		this.cache = cache;
+		this.secondLevel = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+		this.requiresNew = new TransactionTemplate(transactionManager);
+		this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.windowMillis = windowMillis;
+		this.retentionMillis = retentionMillis;
+		this.lag = registry.histogram("change-log.lag-ms");
+	}
+
+	void append(Long id) {
+		append(Collections.singleton(id));
+	}
+
+	void append(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		Date now = new Date();
+		try {
+			requiresNew.execute(status -> changes.save(ids.stream()
+				.map(id -> new ReservationChange(id, node, now))
+				.collect(Collectors.toList())));
+		} catch (RuntimeException ex) {
+			// other nodes stay stale until their cache TTL expires
+			log.warn("Could not record changes of reservations {}", ids, ex);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${reservations.change-log.poll-interval-ms:1000}")
+	public void poll() {
+		long now = System.currentTimeMillis();
+		Date since = new Date(lastPoll - windowMillis);
+		long afterId = Long.MIN_VALUE;
+		List<ReservationChange> batch;
+		boolean changed = false;
+		do {
+			batch = changes.findByChangedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(since, afterId,
+				new PageRequest(0, BATCH_SIZE));
+			for (ReservationChange change : batch) {
+				afterId = change.getId();
+				if (!node.equals(change.getNode())
+						&& applied.putIfAbsent(change.getId(), change.getChangedAt().getTime()) == null) {
+					cache.invalidate(change.getReservationId());
+					secondLevel.evictEntity(Reservation.class, change.getReservationId());
+					changed = true;
+					lag.update(now - change.getChangedAt().getTime());
+				}
+			}
+		} while (batch.size() == BATCH_SIZE);
+		if (changed) {
+			// cached id lists may include or omit the changed rows
+			secondLevel.evictQueryRegion(Reservation.QUERY_CACHE_REGION);
+		}
+		applied.values().removeIf(changedAt -> changedAt < since.getTime());
+		lastPoll = now;
+	}
+
+	@Scheduled(fixedDelayString = "${reservations.change-log.purge-interval-ms:600000}")
+	public void purge() {
+		changes.deleteOlderThan(new Date(System.currentTimeMillis() - retentionMillis));
+	}
+}
+
+@Entity
+@Table(indexes = @Index(name = "idx_reservation_change_changed_at", columnList = "changed_at"))
+@Data
+@NoArgsConstructor
+class ReservationChange {
+
+	@Id
+	@GeneratedValue(generator = "reservation_change_seq")
+	@GenericGenerator(name = "reservation_change_seq", strategy = "enhanced-sequence", parameters = {
+		@Parameter(name = "sequence_name", value = "reservation_change_seq"),
+		@Parameter(name = "increment_size", value = "50"),
+		@Parameter(name = "optimizer", value = "pooled-lo")
+	})
+	private Long id;
+
+	@Column(name = "reservation_id")
+	private Long reservationId;
+
+	private String node;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "changed_at")
+	private Date changedAt;
+
+	ReservationChange(Long reservationId, String node, Date changedAt) {
+		this.reservationId = reservationId;
+		this.node = node;
+		this.changedAt = changedAt;
+	}
+}
@@ -0,0 +1,24 @@
+package com.example;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+@RepositoryRestResource(exported = false)
+public interface ReservationChangesRepository extends JpaRepository<ReservationChange, Long> {
+
+	List<ReservationChange> findByChangedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+			Date since, Long afterId, Pageable page);
+
+	@Modifying
+	@Transactional
+	@Query("delete from ReservationChange c where c.changedAt < :before")
+	int deleteOlderThan(@Param("before") Date before);
+}
@@ -0,0 +1,55 @@
+package com.example;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Number of reservations, exposed as the {@code gauge.reservations.count} gauge. Events adjust it in between, and it
+ * is reset to the database count at startup and periodically, so writes the events never see cannot make it drift
+ * for longer than one interval. A reset only takes back the adjustments it has seen, so events arriving while the
+ * database is counted are kept.
+ */
+@Slf4j
+@Component
+class ReservationCount {
+
+	private final ReservationsRepository reservations;
+
+	private final LongAdder delta = new LongAdder();
+
+	private volatile long base;
+
+	ReservationCount(ReservationsRepository reservations, MetricRegistry registry) {
+		this.reservations = reservations;
+		registry.register("gauge.reservations.count", (Gauge<Long>) this::get);
+	}
+
+	void add(long rows) {
+		delta.add(rows);
+	}
+
+	long get() {
+		return base + delta.sum();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${reservations.count.reconcile-interval-ms:60000}",
+		fixedDelayString = "${reservations.count.reconcile-interval-ms:60000}")
+	public void reconcile() {
+		try {
+			long seen = delta.sum();
+			long fresh = reservations.count();
+			delta.add(-seen);
+			base = fresh;
+		} catch (RuntimeException ex) {
+			log.warn("Could not reconcile reservations count", ex);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+
+@Configuration
+@EnableConfigurationProperties(ReservationNameFilterConfig.class)
+public class ReservationNameFilterConfiguration {
+
+	@Bean
+	ReservationNameFilter reservationNameFilter(ReservationsRepository repository, MetricRegistry registry,
+			ReservationNameFilterConfig config) {
+		return new ReservationNameFilter(repository, config.expectedNames, config.falsePositiveProbability, registry);
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.name-filter")
+class ReservationNameFilterConfig {
+
+	int expectedNames = 1_000_000;
+
+	double falsePositiveProbability = 0.01;
+}
+
+/**
+ * Bloom filter over reservation names, answering "definitely absent" without a database round trip.
+ * Deleted names are only purged by the periodic rebuild; until the first build every name is reported as possibly present.
+ */
+@Slf4j
+class ReservationNameFilter {
+
+	private final ReservationsRepository reservations;
+
+	private final int expectedNames;
+
+	private final double falsePositiveProbability;
+
+	private final AtomicLong positives = new AtomicLong();
+
+	private final AtomicLong falsePositives = new AtomicLong();
+
+	private final AtomicLong negatives = new AtomicLong();
+
+	// the filter answering lookups and the one being rebuilt, published together so a put never misses the new one
+	private volatile Filters filters = new Filters(null, null);
+
+	ReservationNameFilter(ReservationsRepository reservations, int expectedNames, double falsePositiveProbability,
+			MetricRegistry registry) {
+		this.reservations = reservations;
+		this.expectedNames = expectedNames;
+		this.falsePositiveProbability = falsePositiveProbability;
+		registry.register("name-filter.false-positive-rate", (Gauge<Double>) this::falsePositiveRate);
+		registry.register("name-filter.positives", (Gauge<Long>) positives::get);
+		registry.register("name-filter.negatives", (Gauge<Long>) negatives::get);
+	}
+
+	boolean mightContain(String name) {
+		BloomFilter filter = filters.current;
+		return name == null || filter == null || filter.mightContain(name);
+	}
+
+	/**
+	 * Adds a committed name. Names must be put after their row commits, so a rebuild that starts later reads them.
+	 */
+	void put(String name) {
+		if (name == null) {
+			return;
+		}
+		Filters filters = this.filters;
+		if (filters.current != null) {
+			filters.current.put(name);
+		}
+		if (filters.building != null) {
+			filters.building.put(name);
+		}
+	}
+
+	/**
+	 * Records how many names the filter let through to the database, how many of them turned out to be absent,
+	 * and how many absent names it ruled out on its own. Ignored until the first build, when every name passes.
+	 */
+	void recordLookups(int positives, int falsePositives, int negatives) {
+		if (filters.current == null) {
+			return;
+		}
+		this.positives.addAndGet(positives);
+		this.falsePositives.addAndGet(falsePositives);
+		this.negatives.addAndGet(negatives);
+	}
+
+	// share of absent names the filter failed to rule out: FP / (FP + TN)
+	double falsePositiveRate() {
+		long falsePositives = this.falsePositives.get();
+		long absent = falsePositives + negatives.get();
+		return absent == 0 ? 0.0 : (double) falsePositives / absent;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${reservations.name-filter.rebuild-interval-ms:600000}",
+		fixedDelayString = "${reservations.name-filter.rebuild-interval-ms:600000}")
+	@Transactional(readOnly = true)
+	public void rebuild() {
+		BloomFilter filter = new BloomFilter(expectedNames, falsePositiveProbability);
+		filters = new Filters(filters.current, filter);
+		try (Stream<String> names = reservations.streamAllNames()) {
+			names.filter(Objects::nonNull).forEach(filter::put);
+			filters = new Filters(filter, null);
+		} catch (RuntimeException ex) {
+			log.warn("Could not rebuild reservation name filter", ex);
+			filters = new Filters(filters.current, null);
+		}
+	}
+
+	static final class Filters {
+
+		final BloomFilter current;
+
+		final BloomFilter building;
+
+		Filters(BloomFilter current, BloomFilter building) {
+			this.current = current;
+			this.building = building;
+		}
+	}
+
+	static class BloomFilter {
+
+		private final AtomicLongArray bits;
+
+		private final long size;
+
+		private final int hashes;
+
+		BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+			long n = Math.max(1, expectedInsertions);
+			long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+			this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+			this.size = bits.length() * 64L;
+			this.hashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+		}
+
+		void put(String value) {
+			long hash = hash(value);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashes; i++) {
+				long index = Math.floorMod(h1 + (long) i * h2, size);
+				long mask = 1L << index;
+				int word = (int) (index >>> 6);
+				long bitsInWord;
+				do {
+					bitsInWord = bits.get(word);
+				} while ((bitsInWord & mask) == 0 && !bits.compareAndSet(word, bitsInWord, bitsInWord | mask));
+			}
+		}
+
+		boolean mightContain(String value) {
+			long hash = hash(value);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashes; i++) {
+				long index = Math.floorMod(h1 + (long) i * h2, size);
+				if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// 64-bit FNV-1a over the UTF-8 bytes, halves used for double hashing
+		private static long hash(String value) {
+			long hash = 0xcbf29ce484222325L;
+			for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= b & 0xff;
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+	}
+}
@@ -7,18 +7,37 @@ import static org.springframework.transaction.annotation.Propagation.*;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.querydsl.core.BooleanBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
@@ -28,13 +47,17 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StopWatch;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -46,8 +69,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @SpringBootApplication
+@EnableScheduling
 public class ReservationServiceApplication {
 
 	public static void main(String[] args) {
@@ -55,8 +80,11 @@ public class ReservationServiceApplication {
 	}
 
 	@Bean
-	public HealthIndicator reservationsHealth() {
-		return () -> Health.status("This app is UP").build();
+	public HealthIndicator reservationsHealth(ReservationWarmup warmup) {
+		return () -> (warmup.isReady() ? Health.status("This app is UP") : Health.outOfService())
+			.withDetail("warmup", warmup.phase())
+			.withDetail("warmupPages", warmup.completed() + "/" + warmup.total())
+			.build();
 	}
 }
 
@@ -64,34 +92,103 @@ public class ReservationServiceApplication {
 @RequestMapping("/custom-reservations")
 class ReservationsController {
 
+	static final String APPROXIMATE_TOTAL_HEADER = "X-Approximate-Total";
+
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 	private final ReservationsService reservations;
 
-	public ReservationsController(ReservationsService reservations) {
+	private final ObjectMapper mapper;
+
+	public ReservationsController(ReservationsService reservations, ObjectMapper mapper) {
 		this.reservations = reservations;
+		this.mapper = mapper;
 	}
 
 	@GetMapping(produces = APPLICATION_JSON_VALUE)
-	Page<Reservation> list(
+	Page<ReservationView> list(
 			@RequestParam(name = "name", required = false) String name,
 			@RequestParam(name = "lang", required = false) String lang,
-			Pageable pageable) {
+			Pageable pageable, WebRequest request) {
+		if (request.checkNotModified(listETag())) {
+			return null;
+		}
 		return reservations.findAll(name, lang, pageable);
 	}
 
+	@GetMapping(params = "cursor", produces = APPLICATION_JSON_VALUE)
+	CursorPage<ReservationView> list(
+			@RequestParam(name = "name", required = false) String name,
+			@RequestParam(name = "lang", required = false) String lang,
+			@RequestParam(name = "cursor") String cursor,
+			@RequestParam(name = "size", defaultValue = "20") int size,
+			WebRequest request) {
+		if (request.checkNotModified(listETag())) {
+			return null;
+		}
+		return reservations.findAll(name, lang, cursor, size);
+	}
+
+	// a cursor page never counts either, so count=false next to a cursor is left to the cursor mapping
+	@GetMapping(params = { "count=false", "!cursor" }, produces = APPLICATION_JSON_VALUE)
+	ResponseEntity<Slice<ReservationView>> slice(
+			@RequestParam(name = "name", required = false) String name,
+			@RequestParam(name = "lang", required = false) String lang,
+			@RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal,
+			Pageable pageable, WebRequest request) {
+		if (request.checkNotModified(listETag())) {
+			return null;
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (approximateTotal) {
+			response.header(APPROXIMATE_TOTAL_HEADER, String.valueOf(reservations.approximateCount(name, lang)));
+		}
+		return response.body(reservations.findSlice(name, lang, pageable));
+	}
+
 	@PostMapping(consumes = APPLICATION_JSON_VALUE)
 	@ResponseStatus(CREATED)
 	void create(@RequestBody Reservation reservation) {
 		reservations.create(reservation);
 	}
 
+	@PostMapping(path = "/batch", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+	List<BatchItemResult> createAll(@RequestBody List<Reservation> batch) {
+		return reservations.createAll(batch);
+	}
+
+	@PostMapping(path = "/batch", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_JSON_VALUE)
+	List<BatchItemResult> createAll(InputStream body) throws IOException {
+		try (MappingIterator<Reservation> lines = mapper.readerFor(Reservation.class).readValues(body)) {
+			return reservations.createAll(lines.readAll());
+		}
+	}
+
+	// strong ETag from the row version; a cached (committed) view answers If-None-Match without a lookup
 	@GetMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
-	ResponseEntity<?> get(@PathVariable("id") Long id) {
-		Optional<Reservation> reservation = reservations.findOne(id);
-		if (reservation.isPresent()) {
-			return ResponseEntity.ok(reservation.get());
-		} else {
+	ResponseEntity<?> get(@PathVariable("id") Long id, WebRequest request) {
+		Optional<ReservationView> reservation = reservations.findCachedView(id);
+		if (!reservation.isPresent()) {
+			reservation = reservations.findView(id);
+		}
+		if (!reservation.isPresent()) {
 			return ResponseEntity.status(NOT_FOUND).build();
 		}
+		if (request.checkNotModified("\"" + id + "-" + reservation.get().getVersion() + "\"")) {
+			return null;
+		}
+		return ResponseEntity.ok(reservation.get());
+	}
+
+	@GetMapping(path = "/stats/langs", produces = APPLICATION_JSON_VALUE)
+	Map<String, Long> langs() {
+		return reservations.countByLang();
+	}
+
+	// pages change only when the write generation does, so a match is answered before any query; the generation is
+	// per instance, so across several instances only sticky routing gets 304s (see ReservationCache)
+	private String listETag() {
+		return "\"" + reservations.listVersion() + "\"";
 	}
 
 	@PutMapping(path = "/{id}", consumes = APPLICATION_JSON_VALUE)
@@ -105,115 +202,451 @@ class ReservationsController {
 		reservations.delete(id);
 	}
 
+	@DeleteMapping(params = "ids", produces = APPLICATION_JSON_VALUE)
+	Map<String, Integer> deleteAll(@RequestParam("ids") List<Long> ids) {
+		return Collections.singletonMap("deleted", reservations.deleteAll(ids));
+	}
+
 	@ExceptionHandler(ReservationNotFound.class)
 	void handleReservationNotFound(ReservationNotFound ex, HttpServletResponse response) throws IOException {
 		response.sendError(NOT_FOUND.value(), ex.getMessage());
 	}
 }
 
-@Slf4j
 @Configuration
 @EnableAspectJAutoProxy
 class ServiceConfig {
 
+	// a plain bean, so the transaction and monitoring advisors apply; tracing wraps the result afterwards
 	@Bean
-	ReservationsService reservationsService(ReservationsRepository repository) {
-		ReservationsService target = new ReservationsServiceImpl(repository);
-		return (ReservationsService) Proxy.newProxyInstance(
-			Thread.currentThread().getContextClassLoader(),
-			new Class[] { ReservationsService.class },
-			(Object proxy, Method method, Object[] args) -> {
-				log.info("BEFORE method {}", method.getName());
-				Object result = method.invoke(target, args);
-				log.info("AFTER method {}. RETURNED {}", method.getName(), result);
-				return result;
-			}
-		);
+	ReservationsService reservationsService(ReservationsRepository repository, ReservationTotals totals,
+			ReservationEventHandler events, ReservationCache cache, ReservationNameFilter names,
+			LanguageCounts langs, ReservationChangeLog changes, MetricRegistry registry) {
+		return new ReservationsServiceImpl(repository, totals, events, cache, names, langs,
+			new SingleFlight("reads", registry), changes);
 	}
 }
 
-@Slf4j
+/**
+ * Times every {@link ReservationsService} call into a per-method {@link Timer} backed by an HdrHistogram, so the
+ * registry (and Graphite) get nanosecond-resolution tail percentiles. Timers are created up front; a call only looks
+ * one up and records into it.
+ */
 @Aspect
 @Component
 class MonitorAspect {
 
+	private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+	private final MetricRegistry registry;
+
+	private final long highestTrackableNanos;
+
+	private final int significantDigits;
+
+	private final long snapshotIntervalMs;
+
+	MonitorAspect(MetricRegistry registry,
+			@Value("${reservations.timers.highest-trackable-ms:60000}") long highestTrackableMs,
+			@Value("${reservations.timers.significant-digits:2}") int significantDigits,
+			@Value("${reservations.timers.snapshot-interval-ms:2000}") long snapshotIntervalMs) {
+		this.registry = registry;
+		this.highestTrackableNanos = TimeUnit.MILLISECONDS.toNanos(highestTrackableMs);
+		this.significantDigits = significantDigits;
+		this.snapshotIntervalMs = snapshotIntervalMs;
+		for (Method method : ReservationsService.class.getMethods()) {
+			timers.put(method, register(method));
+		}
+	}
+
 	@Pointcut("execution(* com.example.ReservationsService.*(..))")
 	private void anyServiceOperation() {}
 
 	@Around("anyServiceOperation()")
 	public Object measureExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-		String name = joinPoint.getSignature().getName();
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start(name);
-		Object result = joinPoint.proceed();
-		stopWatch.stop();
-		log.info("MONITOR method {} took {}ms", name, stopWatch.getLastTaskInfo().getTimeMillis());
-		return result;
+		Timer timer = timer(((MethodSignature) joinPoint.getSignature()).getMethod());
+		long start = System.nanoTime();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private Timer timer(Method method) {
+		Timer timer = timers.get(method);
+		return timer != null ? timer : timers.computeIfAbsent(method, this::register);
+	}
+
+	// overloads get their parameter count appended, e.g. findAll.3 and findAll.4
+	private Timer register(Method method) {
+		long overloads = Arrays.stream(ReservationsService.class.getMethods())
+			.filter(candidate -> candidate.getName().equals(method.getName()))
+			.count();
+		String name = MetricRegistry.name("timer.reservations", overloads > 1
+			? method.getName() + "." + method.getParameterCount()
+			: method.getName());
+		Timer existing = registry.getTimers().get(name);
+		return existing != null ? existing : registry.register(name, new Timer(new HdrHistogramReservoir(
+			highestTrackableNanos, significantDigits, snapshotIntervalMs, TimeUnit.MILLISECONDS)));
 	}
 }
 
 interface ReservationsService {
 
-	Page<Reservation> findAll(String name, String lang, Pageable pageable);
+	Page<ReservationView> findAll(String name, String lang, Pageable pageable);
+
+	CursorPage<ReservationView> findAll(String name, String lang, String cursor, int size);
+
+	Slice<ReservationView> findSlice(String name, String lang, Pageable pageable);
+
+	long approximateCount(String name, String lang);
+
+	String listVersion();
+
+	Map<String, Long> countByLang();
 
 	Optional<Reservation> findOne(Long id);
 
+	Optional<ReservationView> findView(Long id);
+
+	Optional<ReservationView> findCachedView(Long id);
+
 	Reservation create(Reservation reservation);
 
-	Reservation update(Long id, Reservation reservation);
+	List<BatchItemResult> createAll(List<Reservation> batch);
+
+	void update(Long id, Reservation reservation);
 
 	void delete(Long id);
+
+	int deleteAll(Collection<Long> ids);
 }
 
 @Transactional
 class ReservationsServiceImpl implements ReservationsService {
 
+	static final int MAX_PAGE_SIZE = 2000;
+
+	static final int BATCH_CHUNK_SIZE = 500;
+
+	static final int MAX_UPDATE_ATTEMPTS = 3;
+
+	// how H2 names the violated index in its message, e.g. "UK_..._INDEX_8 ON PUBLIC.RESERVATION(NAME) VALUES ..."
+	static final String NAME_COLUMN_INDEX = "RESERVATION(NAME)";
+
 	private final ReservationsRepository reservations;
 
-	ReservationsServiceImpl(ReservationsRepository reservations) {
+	private final ReservationTotals totals;
+
+	private final ReservationEventHandler events;
+
+	private final ReservationCache cache;
+
+	private final ReservationNameFilter names;
+
+	private final LanguageCounts langs;
+
+	private final SingleFlight reads;
+
+	private final ReservationChangeLog changes;
+
+	ReservationsServiceImpl(ReservationsRepository reservations, ReservationTotals totals,
+			ReservationEventHandler events, ReservationCache cache, ReservationNameFilter names,
+			LanguageCounts langs, SingleFlight reads, ReservationChangeLog changes) {
 		this.reservations = reservations;
+		this.totals = totals;
+		this.events = events;
+		this.cache = cache;
+		this.names = names;
+		this.langs = langs;
+		this.reads = reads;
+		this.changes = changes;
 	}
 
+	// flights are keyed by write generation, so a read started after a commit never joins one started before it
 	@Transactional(propagation = SUPPORTS, readOnly = true)
-	public Page<Reservation> findAll(String name, String lang, Pageable pageable) {
-		return reservations.findAll(new BooleanBuilder()
+	public Page<ReservationView> findAll(String name, String lang, Pageable pageable) {
+		return reads.run(Arrays.asList("page", cache.generation(), name, lang, pageable),
+			() -> cache.getPage(name, lang, pageable, () -> reservations.findViews(new BooleanBuilder()
 				.and(withName(name))
 				.and(withLang(lang)),
-				pageable);
+				pageable)));
 	}
 
+	@Transactional(propagation = SUPPORTS, readOnly = true)
+	public CursorPage<ReservationView> findAll(String name, String lang, String cursor, int size) {
+		int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		Long after = CursorPage.decode(cursor);
+		List<ReservationView> content = reads.run(
+			Arrays.asList("cursor", cache.generation(), name, lang, after, limit),
+			() -> reservations.findViewsOrderedById(new BooleanBuilder()
+				.and(withName(name))
+				.and(withLang(lang))
+				.and(afterId(after)),
+				limit + 1));
+		if (content.size() <= limit) {
+			return new CursorPage<>(content, null);
+		}
+		content = content.subList(0, limit);
+		return new CursorPage<>(content, CursorPage.encode(content.get(limit - 1).getId()));
+	}
+
+	@Transactional(propagation = SUPPORTS, readOnly = true)
+	public Slice<ReservationView> findSlice(String name, String lang, Pageable pageable) {
+		return reads.run(Arrays.asList("slice", cache.generation(), name, lang, pageable),
+			() -> reservations.findViewSlice(new BooleanBuilder()
+				.and(withName(name))
+				.and(withLang(lang)),
+				pageable));
+	}
+
+	@Transactional(propagation = SUPPORTS, readOnly = true)
+	public long approximateCount(String name, String lang) {
+		return totals.approximateCount(name, lang);
+	}
+
+	@Transactional(propagation = SUPPORTS)
+	public Map<String, Long> countByLang() {
+		return langs.snapshot();
+	}
+
+	@Transactional(propagation = SUPPORTS)
+	public String listVersion() {
+		return cache.generationTag();
+	}
+
+	// not coalesced: the entity is managed by the caller's persistence context and must not be shared
 	@Transactional(propagation = SUPPORTS, readOnly = true)
 	public Optional<Reservation> findOne(Long id) {
 		return Optional.ofNullable(reservations.findOne(id));
 	}
 
+	@Transactional(propagation = SUPPORTS, readOnly = true)
+	public Optional<ReservationView> findView(Long id) {
+		return reads.run(Arrays.asList("view", cache.generation(), id),
+			() -> cache.get(id, reservations::findViewById));
+	}
+
+	@Transactional(propagation = SUPPORTS, readOnly = true)
+	public Optional<ReservationView> findCachedView(Long id) {
+		return cache.peek(id);
+	}
+
+	// relies on the unique constraint instead of a findByName pre-read, which costs a round trip and still races
 	public Reservation create(Reservation reservation) {
-		validateNotExists(reservation.getName());
-		reservations.save(reservation);
-		return reservation;
+		reservation.setId(null);
+		reservation.setVersion(null);
+		try {
+			Reservation created = reservations.saveAndFlush(reservation);
+			Long id = created.getId();
+			afterCommit(() -> cache.invalidate(id));
+			afterCommit(() -> names.put(created.getName()));
+			afterCommit(() -> langs.increment(created.getLang()));
+			afterCommit(() -> changes.append(id));
+			afterCommit(() -> events.created(1));
+			return created;
+		} catch (DataIntegrityViolationException ex) {
+			if (isNameConflict(ex)) {
+				throw new ReservationAlreadyExists(reservation.getName());
+			}
+			throw ex;
+		}
+	}
+
+	static boolean isNameConflict(DataIntegrityViolationException ex) {
+		if (!(ex.getCause() instanceof ConstraintViolationException)) {
+			return false;
+		}
+		ConstraintViolationException violation = (ConstraintViolationException) ex.getCause();
+		String constraint = violation.getConstraintName();
+		if (constraint != null && constraint.toLowerCase(Locale.ROOT).contains(Reservation.NAME_CONSTRAINT)) {
+			return true;
+		}
+		// schemas created before the constraint was named keep Hibernate's generated name, so match the column
+		String message = violation.getSQLException() != null ? violation.getSQLException().getMessage() : null;
+		return message != null && message.toUpperCase(Locale.ROOT).contains(NAME_COLUMN_INDEX);
+	}
+
+	// each chunk costs one name IN (...) query and one batched insert in its own transaction
+	@Transactional(propagation = NOT_SUPPORTED)
+	public List<BatchItemResult> createAll(List<Reservation> batch) {
+		List<BatchItemResult> results = new ArrayList<>(batch.size());
+		Set<String> seen = new HashSet<>();
+		for (int from = 0; from < batch.size(); from += BATCH_CHUNK_SIZE) {
+			List<Reservation> chunk = batch.subList(from, Math.min(from + BATCH_CHUNK_SIZE, batch.size()));
+			results.addAll(createChunk(from, chunk, seen));
+		}
+		return results;
 	}
 
-	private void validateNotExists(String name) {
-		reservations.findByName(name)
-			.ifPresent(existing -> {
-				throw new ReservationAlreadyExists(existing.getName());
+	private List<BatchItemResult> createChunk(int offset, List<Reservation> chunk, Set<String> seen) {
+		Map<Boolean, Set<String>> filtered = chunk.stream()
+			.map(Reservation::getName)
+			.collect(Collectors.partitioningBy(names::mightContain, Collectors.toSet()));
+		Set<String> candidates = filtered.get(true);
+		Set<String> existing = candidates.isEmpty()
+			? Collections.emptySet()
+			: reservations.findExistingNames(candidates);
+		names.recordLookups(candidates.size(), candidates.size() - existing.size(), filtered.get(false).size());
+		boolean[] accepted = new boolean[chunk.size()];
+		List<Reservation> fresh = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			Reservation reservation = chunk.get(i);
+			if (!existing.contains(reservation.getName()) && seen.add(reservation.getName())) {
+				reservation.setId(null);
+				reservation.setVersion(null);
+				fresh.add(reservation);
+				accepted[i] = true;
+			}
+		}
+		try {
+			reservations.save(fresh);
+			List<Long> ids = fresh.stream().map(Reservation::getId).collect(Collectors.toList());
+			afterCommit(() -> cache.invalidateAll(ids));
+			fresh.forEach(reservation -> {
+				afterCommit(() -> names.put(reservation.getName()));
+				afterCommit(() -> langs.increment(reservation.getLang()));
 			});
+			afterCommit(() -> changes.append(ids));
+			afterCommit(() -> events.created(ids.size()));
+		} catch (DataIntegrityViolationException ex) {
+			// a concurrent writer took one of the names, retry the chunk row by row
+			for (int i = 0; i < chunk.size(); i++) {
+				if (accepted[i]) {
+					accepted[i] = saveIfAbsent(chunk.get(i));
+				}
+			}
+		}
+		List<BatchItemResult> results = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			results.add(accepted[i]
+				? BatchItemResult.created(offset + i, chunk.get(i))
+				: BatchItemResult.conflict(offset + i, chunk.get(i)));
+		}
+		return results;
 	}
 
-	public Reservation update(Long id, Reservation reservation) {
-		return findOne(id)
-			.map(existing -> {
-				validateNotExists(reservation.getName());
-				existing.setName(reservation.getName());
-				existing.setLang(reservation.getLang());
-				reservations.save(existing);
-				return existing;
-			})
-			.orElseThrow(() -> new ReservationNotFound(id));
+	private boolean saveIfAbsent(Reservation reservation) {
+		reservation.setId(null);
+		reservation.setVersion(null);
+		try {
+			reservations.saveAndFlush(reservation);
+			Long id = reservation.getId();
+			afterCommit(() -> cache.invalidate(id));
+			afterCommit(() -> names.put(reservation.getName()));
+			afterCommit(() -> langs.increment(reservation.getLang()));
+			afterCommit(() -> changes.append(id));
+			afterCommit(() -> events.created(1));
+			return true;
+		} catch (DataIntegrityViolationException ex) {
+			if (isNameConflict(ex)) {
+				return false;
+			}
+			throw ex;
+		}
+	}
+
+	// one UPDATE ... WHERE id = ? AND version = ?; the current row is read first only without a client
+	// version (then retried on concurrent modification) or when lang changes (to move its count)
+	public void update(Long id, Reservation reservation) {
+		Long expected = reservation.getVersion();
+		try {
+			if (expected != null && reservation.getLang() == null) {
+				if (updateIfVersion(id, expected, reservation, null) == 0) {
+					reservations.findCurrentViewById(id).orElseThrow(() -> new ReservationNotFound(id));
+					throw new ReservationVersionConflict(id);
+				}
+				return;
+			}
+			// usually lang is sent unchanged: matching it in the UPDATE proves no count has to move
+			if (expected != null && reservations.updateKeepingLang(id, expected, reservation.getName(),
+					reservation.getLang()) > 0) {
+				updated(id, reservation, reservation.getLang());
+				return;
+			}
+			for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+				ReservationView current = reservations.findCurrentViewById(id).orElseThrow(() -> new ReservationNotFound(id));
+				if (expected != null && !expected.equals(current.getVersion())) {
+					break;
+				}
+				if (updateIfVersion(id, current.getVersion(), reservation, current.getLang()) > 0) {
+					return;
+				}
+			}
+			throw new ReservationVersionConflict(id);
+		} catch (DataIntegrityViolationException ex) {
+			if (isNameConflict(ex)) {
+				throw new ReservationAlreadyExists(reservation.getName());
+			}
+			throw ex;
+		}
+	}
+
+	private long updateIfVersion(Long id, Long version, Reservation reservation, String previousLang) {
+		long rows = reservations.update(id, version, reservation.getName(), reservation.getLang());
+		if (rows > 0) {
+			updated(id, reservation, previousLang);
+		}
+		return rows;
+	}
+
+	private void updated(Long id, Reservation reservation, String previousLang) {
+		afterCommit(() -> cache.invalidate(id));
+		afterCommit(() -> names.put(reservation.getName()));
+		if (reservation.getLang() != null) {
+			afterCommit(() -> langs.moved(previousLang, reservation.getLang()));
+		}
+		afterCommit(() -> changes.append(id));
 	}
 
+	// a single statement: the language to decrement comes from the cached view, if any, and is otherwise
+	// left for the scheduled reconcile rather than read first
 	public void delete(Long id) {
-		reservations.delete(id);
+		Optional<ReservationView> cached = cache.peek(id);
+		int deleted = reservations.deleteById(id);
+		if (deleted == 0) {
+			// nothing was written, but a cached view of the id is evidently stale
+			cache.evictView(id);
+			throw new ReservationNotFound(id);
+		}
+		afterCommit(() -> cache.invalidate(id));
+		cached.ifPresent(view -> afterCommit(() -> langs.decrement(view.getLang())));
+		afterCommit(() -> changes.append(id));
+		afterCommit(() -> events.deleted(1));
+	}
+
+	@Transactional(propagation = NOT_SUPPORTED)
+	public int deleteAll(Collection<Long> ids) {
+		List<Long> distinct = new ArrayList<>(new HashSet<>(ids));
+		int deleted = 0;
+		for (int from = 0; from < distinct.size(); from += BATCH_CHUNK_SIZE) {
+			List<Long> chunk = distinct.subList(from, Math.min(from + BATCH_CHUNK_SIZE, distinct.size()));
+			List<String> removed = reservations.deleteReturningLangs(chunk);
+			deleted += removed.size();
+			afterCommit(() -> langs.removed(removed));
+		}
+		afterCommit(() -> cache.invalidateAll(distinct));
+		afterCommit(() -> changes.append(distinct));
+		events.deleted(deleted);
+		return deleted;
+	}
+
+	// evicting before the commit lets a concurrent read reload and cache the old row, a change appended inside
+	// the transaction could fail it, and counts adjusted before it would stay off after a rollback, so all of them
+	// wait for the surrounding transaction to commit; without one (batch paths commit per statement) they run right away
+	static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+				&& TransactionSynchronizationManager.isActualTransactionActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
 	}
 }
 
@@ -230,12 +663,20 @@ class ReservationAlreadyExists extends RuntimeException {
 	}
 }
 
+@ResponseStatus(CONFLICT)
+class ReservationVersionConflict extends RuntimeException {
+	ReservationVersionConflict(Long id) {
+		super("Reservation for id '" + id + "' was modified concurrently!");
+	}
+}
+
 @Configuration
 @EnableJpaRepositories
 
 class RepositoryConfig {
 }
 
+@Slf4j
 @Component
 class ReservationsInitializer implements ApplicationRunner {
 
@@ -244,14 +685,20 @@ class ReservationsInitializer implements ApplicationRunner {
 	@Override
 	@Transactional
 	public void run(ApplicationArguments args) throws Exception {
-		Stream.of(
+		// first, since restarting the sequence commits whatever the transaction did before it
+		if (reservations.alignIdSequence()) {
+			log.info("Restarted {} after the highest existing id", Reservation.ID_SEQUENCE);
+		}
+		reservations.backfillKeys();
+		reservations.backfillVersions();
+		reservations.save(Stream.of(
 			"Tomek:PLSQL", "Tomasz:PLSQL", "Stanisław:PLSQL",
 			"Grzegorz:C++", "Rafał:C++", "Andrzej:C++", "Tom:C++",
 			"Marek:Java", "Artur:OracleForms", "Jędrek:OracleForms")
 			.map(entry -> entry.split(":"))
 			.map(entry -> new Reservation(entry[0], entry[1]))
 			.filter(r -> !reservations.findByName(r.getName()).isPresent())
-			.forEach(r-> reservations.save(r));
+			.collect(Collectors.toList()));
 
 	}
 }
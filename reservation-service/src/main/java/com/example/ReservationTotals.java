@@ -0,0 +1,50 @@
+package com.example;
+
+import static com.example.ReservationsRepository.Spec.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.querydsl.core.BooleanBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Approximate totals per normalized name/lang filter, so "about N results" does not cost a COUNT(*) per request.
+ * Only the first request for a filter waits for its count; after that the cached total is served and, once older
+ * than the refresh interval, re-counted in the background on the next request. Filters nobody asked for within the
+ * expiry are dropped, and the least used ones give way once the cache is full, so new filters keep getting cached.
+ */
+@Component
+class ReservationTotals {
+
+	static final int MAX_ENTRIES = 1000;
+
+	private final ReservationsRepository reservations;
+
+	private final LoadingCache<List<String>, Long> totals;
+
+	ReservationTotals(ReservationsRepository reservations,
+			@Value("${reservations.totals.refresh-interval-ms:30000}") long refreshIntervalMs,
+			@Value("${reservations.totals.expire-after-access-ms:600000}") long expireAfterAccessMs) {
+		this.reservations = reservations;
+		this.totals = Caffeine.newBuilder()
+			.maximumSize(MAX_ENTRIES)
+			.expireAfterAccess(expireAfterAccessMs, TimeUnit.MILLISECONDS)
+			.refreshAfterWrite(refreshIntervalMs, TimeUnit.MILLISECONDS)
+			.build(this::count);
+	}
+
+	long approximateCount(String name, String lang) {
+		return totals.get(Arrays.asList(Reservation.normalize(name), Reservation.normalize(lang)));
+	}
+
+	private long count(List<String> key) {
+		return reservations.count(new BooleanBuilder()
+				.and(withName(key.get(0)))
+				.and(withLang(key.get(1))));
+	}
+}
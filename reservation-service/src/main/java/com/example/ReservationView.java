@@ -0,0 +1,15 @@
+package com.example;
+
+import lombok.Value;
+
+@Value
+public class ReservationView {
+
+	Long id;
+
+	String name;
+
+	String lang;
+
+	Long version;
+}
@@ -0,0 +1,174 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+@Configuration
+@EnableConfigurationProperties(ReservationWarmupConfig.class)
+public class ReservationWarmupConfiguration {
+
+	@Bean
+	ReservationWarmup reservationWarmup(ReservationsService service, ReservationsRepository repository,
+			ReservationCache cache, ReservationWarmupConfig config) {
+		return new ReservationWarmup(service, repository, cache, config);
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.warmup")
+class ReservationWarmupConfig {
+
+	boolean enabled = true;
+
+	int pages = 5;
+
+	int pageSize = 20;
+
+	int languages = 10;
+
+	int parallelism = 4;
+
+	long timeoutMs = 30_000;
+}
+
+/**
+ * Preloads the list pages most likely to be hit right after startup, and the reservations on them, so a fresh
+ * instance does not serve its first requests from a cold cache. No access statistics survive a restart, so the
+ * first pages of the unfiltered listing and the first page of the largest languages stand in for the hot set.
+ * Each page is one bounded task on a small fixed pool; tasks not started before the deadline are skipped.
+ */
+@Slf4j
+class ReservationWarmup {
+
+	enum Phase { PENDING, RUNNING, DONE, TIMED_OUT, DISABLED }
+
+	private final ReservationsService service;
+
+	private final ReservationsRepository reservations;
+
+	private final ReservationCache cache;
+
+	private final ReservationWarmupConfig config;
+
+	private final AtomicInteger completed = new AtomicInteger();
+
+	private volatile int total;
+
+	private volatile long deadline;
+
+	private volatile Phase phase;
+
+	ReservationWarmup(ReservationsService service, ReservationsRepository reservations, ReservationCache cache,
+			ReservationWarmupConfig config) {
+		this.service = service;
+		this.reservations = reservations;
+		this.cache = cache;
+		this.config = config;
+		this.phase = config.enabled ? Phase.PENDING : Phase.DISABLED;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (phase != Phase.PENDING) {
+			return;
+		}
+		deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.timeoutMs);
+		List<PageRequest> requests = new ArrayList<>();
+		List<String> langs = new ArrayList<>();
+		for (int page = 0; page < config.pages; page++) {
+			requests.add(new PageRequest(page, config.pageSize));
+			langs.add(null);
+		}
+		try {
+			reservations.countByLang().stream()
+				.filter(row -> row[0] != null)
+				.sorted((a, b) -> Long.compare(((Number) b[1]).longValue(), ((Number) a[1]).longValue()))
+				.limit(config.languages)
+				.forEach(row -> {
+					requests.add(new PageRequest(0, config.pageSize));
+					langs.add((String) row[0]);
+				});
+		} catch (RuntimeException ex) {
+			log.warn("Could not read languages to warm up, warming the unfiltered listing only", ex);
+		}
+		total = requests.size();
+		phase = Phase.RUNNING;
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.parallelism), threads());
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[requests.size()];
+		for (int i = 0; i < tasks.length; i++) {
+			String lang = langs.get(i);
+			PageRequest request = requests.get(i);
+			tasks[i] = CompletableFuture.runAsync(() -> warm(lang, request), executor);
+		}
+		CompletableFuture.allOf(tasks).whenComplete((ignored, ex) -> {
+			executor.shutdown();
+			finish();
+		});
+	}
+
+	boolean isReady() {
+		return phase() != Phase.PENDING && phase() != Phase.RUNNING;
+	}
+
+	Phase phase() {
+		Phase current = phase;
+		if (current == Phase.RUNNING && System.nanoTime() - deadline >= 0) {
+			return Phase.TIMED_OUT;
+		}
+		return current;
+	}
+
+	int completed() {
+		return completed.get();
+	}
+
+	int total() {
+		return total;
+	}
+
+	private void warm(String lang, PageRequest request) {
+		if (System.nanoTime() - deadline >= 0) {
+			return;
+		}
+		try {
+			long generation = cache.generation();
+			Page<ReservationView> page = service.findAll(null, lang, request);
+			cache.putAll(page.getContent(), generation);
+			completed.incrementAndGet();
+		} catch (RuntimeException ex) {
+			log.warn("Could not warm up page {} of lang {}", request, lang, ex);
+		}
+	}
+
+	private void finish() {
+		phase = completed.get() == total ? Phase.DONE : Phase.TIMED_OUT;
+		log.info("Reservations warm-up {}: {} of {} pages loaded", phase, completed.get(), total);
+	}
+
+	private static ThreadFactory threads() {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "reservations-warmup-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -2,14 +2,20 @@ package com.example;
 
 import static com.example.QReservation.*;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.HandleAfterCreate;
@@ -19,19 +25,24 @@ import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 @RepositoryRestResource
 public interface ReservationsRepository extends JpaRepository<Reservation, Long>,
-		QueryDslPredicateExecutor<Reservation>, LegacyReservationsRepository {
+		QueryDslPredicateExecutor<Reservation>, LegacyReservationsRepository, CustomReservationsRepository {
 
 	class Spec {
 
 		static BooleanExpression withName(String name) {
-			return name == null ? null : reservation.name.equalsIgnoreCase(name);
+			return name == null ? null : reservation.nameKey.eq(Reservation.normalize(name));
 		}
 
 		static BooleanExpression withLang(String lang) {
-			return lang == null ? null : reservation.lang.equalsIgnoreCase(lang);
+			return lang == null ? null : reservation.langKey.eq(Reservation.normalize(lang));
+		}
+
+		static BooleanExpression afterId(Long id) {
+			return id == null ? null : reservation.id.gt(id);
 		}
 	}
 
@@ -39,14 +50,46 @@ public interface ReservationsRepository extends JpaRepository<Reservation, Long>
 		return Optional.ofNullable(findOne(id));
 	}
 
+	@QueryHints({
+		@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+		@QueryHint(name = "org.hibernate.cacheRegion", value = Reservation.QUERY_CACHE_REGION)
+	})
 	Optional<Reservation> findByName(@Param("name") String name);
 
+	@RestResource(exported = false)
+	@Query("select r.name from Reservation r where r.name in :names")
+	Set<String> findExistingNames(@Param("names") Collection<String> names);
+
+	@RestResource(exported = false)
+	@Query("select r.name from Reservation r")
+	Stream<String> streamAllNames();
+
 	@Override
 	List<Reservation> findAll(Predicate predicate);
 
+	@Modifying
+	@RestResource(exported = false)
+	@Query("update Reservation r set r.nameKey = lower(r.name), r.langKey = lower(r.lang) where r.nameKey is null")
+	int backfillKeys();
+
+	@Modifying
+	@RestResource(exported = false)
+	@Query("update Reservation r set r.version = 0 where r.version is null")
+	int backfillVersions();
+
+	@RestResource(exported = false)
+	@Query("select r.lang, count(r) from Reservation r group by r.lang")
+	List<Object[]> countByLang();
+
 	@Override
 	@RestResource(exported = false)
 	void delete(Long id);
+
+	@Modifying
+	@Transactional
+	@RestResource(exported = false)
+	@Query("delete from Reservation r where r.id = :id")
+	int deleteById(@Param("id") Long id);
 }
 
 @Slf4j
@@ -54,16 +97,19 @@ public interface ReservationsRepository extends JpaRepository<Reservation, Long>
 @RepositoryEventHandler
 class ReservationEventHandler {
 
-	private final CounterService counter;
+	private final StripedMetricServices counter;
+
+	private final ReservationCount count;
 
-	public ReservationEventHandler(CounterService counter) {
+	public ReservationEventHandler(StripedMetricServices counter, ReservationCount count) {
 		this.counter = counter;
+		this.count = count;
 	}
 
 	@HandleAfterCreate
 	public void create(Reservation reservation) {
 		log.info("Created reservation for {}.", reservation.getName());
-		counter.increment("count");
+		count.add(1);
 		counter.increment("create");
 	}
 
@@ -76,7 +122,19 @@ class ReservationEventHandler {
 	@HandleAfterDelete
 	public void delete(Reservation reservation) {
 		log.info("Removed reservation for {}.", reservation.getName());
-		counter.decrement("count");
+		count.add(-1);
 		counter.increment("delete");
 	}
+
+	public void created(int rows) {
+		log.info("Created {} reservations.", rows);
+		count.add(rows);
+		counter.increment("create", rows);
+	}
+
+	public void deleted(int rows) {
+		log.info("Removed {} reservations.", rows);
+		count.add(-rows);
+		counter.increment("delete", rows);
+	}
 }
@@ -1,18 +1,206 @@
 package com.example;
 
+import static com.example.QReservation.*;
+import static java.util.Spliterator.*;
+
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilderFactory;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 @Component
-public class ReservationsRepositoryImpl implements LegacyReservationsRepository {
+public class ReservationsRepositoryImpl implements LegacyReservationsRepository, CustomReservationsRepository {
+
+	static final int FETCH_SIZE = 500;
 
 	@PersistenceContext EntityManager jpa;
 
+	private Querydsl querydsl;
+
+	@PostConstruct
+	void init() {
+		querydsl = new Querydsl(jpa, new PathBuilderFactory().create(Reservation.class));
+	}
+
 	@Override
 	public List<Reservation> findByLang(String lang) {
-		return jpa.createQuery("from Reservation where lang = :lang").getResultList();
+		return jpa.createQuery("from Reservation where lang = :lang", Reservation.class)
+			.setParameter("lang", lang)
+			.getResultList();
+	}
+
+	@Override
+	public Stream<Reservation> streamByLang(String lang) {
+		Session session = jpa.unwrap(Session.class);
+		ScrollableResults results = session.createQuery("from Reservation where lang = :lang")
+			.setParameter("lang", lang)
+			.setFetchSize(FETCH_SIZE)
+			.setReadOnly(true)
+			.scroll(ScrollMode.FORWARD_ONLY);
+		Spliterator<Reservation> rows = new Spliterators.AbstractSpliterator<Reservation>(Long.MAX_VALUE, ORDERED | NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super Reservation> action) {
+				if (!results.next()) {
+					return false;
+				}
+				Reservation row = (Reservation) results.get(0);
+				action.accept(row);
+				session.evict(row);
+				return true;
+			}
+		};
+		return StreamSupport.stream(rows, false).onClose(results::close);
+	}
+
+	@Override
+	public Optional<ReservationView> findViewById(Long id) {
+		return Optional.ofNullable(views()
+			.where(reservation.id.eq(id))
+			.fetchOne());
+	}
+
+	@Override
+	public Optional<ReservationView> findCurrentViewById(Long id) {
+		return Optional.ofNullable(currentViews()
+			.where(reservation.id.eq(id))
+			.fetchOne());
+	}
+
+	@Override
+	public Page<ReservationView> findViews(Predicate predicate, Pageable pageable) {
+		JPQLQuery<ReservationView> query = querydsl.applyPagination(pageable, views().where(predicate));
+		QueryResults<ReservationView> results = query.fetchResults();
+		return new PageImpl<>(results.getResults(), pageable, results.getTotal());
+	}
+
+	@Override
+	public List<ReservationView> findViewsOrderedById(Predicate predicate, int limit) {
+		return views()
+			.where(predicate)
+			.orderBy(reservation.id.asc())
+			.limit(limit)
+			.fetch();
+	}
+
+	@Override
+	public Slice<ReservationView> findViewSlice(Predicate predicate, Pageable pageable) {
+		JPQLQuery<ReservationView> query = views()
+			.where(predicate)
+			.offset(pageable.getOffset())
+			.limit(pageable.getPageSize() + 1);
+		List<ReservationView> content = querydsl.applySorting(pageable.getSort(), query).fetch();
+		boolean hasNext = content.size() > pageable.getPageSize();
+		return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+	}
+
+	@Override
+	@Transactional
+	public long update(Long id, Long version, String name, String lang) {
+		return updateClause(id, version, name, lang).execute();
+	}
+
+	@Override
+	@Transactional
+	public long updateKeepingLang(Long id, Long version, String name, String lang) {
+		return updateClause(id, version, name, lang)
+			.where(reservation.lang.eq(lang))
+			.execute();
+	}
+
+	// the rows are locked before their langs are read, so a concurrent delete of the same ids either waits for this
+	// one or has already removed them, and every deleted row is reported by exactly one caller
+	@Override
+	@Transactional
+	public List<String> deleteReturningLangs(Collection<Long> ids) {
+		List<Tuple> rows = new JPAQuery<Reservation>(jpa)
+			.select(reservation.id, reservation.lang)
+			.from(reservation)
+			.where(reservation.id.in(ids))
+			.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+			.fetch();
+		if (rows.isEmpty()) {
+			return Collections.emptyList();
+		}
+		new JPADeleteClause(jpa, reservation)
+			.where(reservation.id.in(rows.stream().map(row -> row.get(reservation.id)).collect(Collectors.toList())))
+			.execute();
+		return rows.stream().map(row -> row.get(reservation.lang)).collect(Collectors.toList());
+	}
+
+	// reading the next value spends one block of ids, which is cheaper than parsing sequence metadata per database
+	@Override
+	@Transactional
+	public boolean alignIdSequence() {
+		Long maxId = jpa.createQuery("select max(r.id) from Reservation r", Long.class).getSingleResult();
+		if (maxId == null) {
+			return false;
+		}
+		long next = ((Number) jpa.createNativeQuery("select next value for " + Reservation.ID_SEQUENCE)
+			.getSingleResult()).longValue();
+		if (next > maxId) {
+			return false;
+		}
+		jpa.createNativeQuery("alter sequence " + Reservation.ID_SEQUENCE + " restart with " + (maxId + 1))
+			.executeUpdate();
+		return true;
+	}
+
+	private JPAUpdateClause updateClause(Long id, Long version, String name, String lang) {
+		JPAUpdateClause update = new JPAUpdateClause(jpa, reservation)
+			.set(reservation.version, reservation.version.add(1L))
+			.where(reservation.id.eq(id), reservation.version.eq(version));
+		if (name != null) {
+			update.set(reservation.name, name).set(reservation.nameKey, Reservation.normalize(name));
+		}
+		if (lang != null) {
+			update.set(reservation.lang, lang).set(reservation.langKey, Reservation.normalize(lang));
+		}
+		return update;
+	}
+
+	private JPAQuery<ReservationView> views() {
+		return currentViews()
+			.setHint("org.hibernate.cacheable", true)
+			.setHint("org.hibernate.cacheRegion", Reservation.QUERY_CACHE_REGION);
+	}
+
+	// constructor projection: rows never enter the persistence context, so no snapshots or dirty checking; not cached,
+	// since the query region of this node may still hold results another node's write made stale
+	private JPAQuery<ReservationView> currentViews() {
+		return new JPAQuery<Reservation>(jpa)
+			.select(Projections.constructor(ReservationView.class,
+				reservation.id, reservation.name, reservation.lang, reservation.version))
+			.from(reservation);
 	}
 }
@@ -0,0 +1,80 @@
+package com.example;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheConfig.class)
+public class SecondLevelCacheConfiguration {
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final SecondLevelCacheConfig config;
+
+	public SecondLevelCacheConfiguration(EntityManagerFactory entityManagerFactory, SecondLevelCacheConfig config) {
+		this.entityManagerFactory = entityManagerFactory;
+		this.config = config;
+	}
+
+	@PostConstruct
+	void resizeRegions() {
+		CacheManager cacheManager = CacheManager.getInstance();
+		config.regions.forEach((region, size) -> {
+			Ehcache cache = cacheManager.getEhcache(region);
+			if (cache == null) {
+				log.warn("No second-level cache region {} to resize", region);
+				return;
+			}
+			cache.getCacheConfiguration().setMaxEntriesLocalHeap(size);
+		});
+	}
+
+	@Bean
+	PublicMetrics secondLevelCacheMetrics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		return () -> {
+			Collection<Metric<?>> metrics = new ArrayList<>();
+			for (String region : statistics.getSecondLevelCacheRegionNames()) {
+				SecondLevelCacheStatistics stats = statistics.getSecondLevelCacheStatistics(region);
+				String prefix = "hibernate.cache." + region + ".";
+				metrics.add(new Metric<>(prefix + "hits", stats.getHitCount()));
+				metrics.add(new Metric<>(prefix + "misses", stats.getMissCount()));
+				metrics.add(new Metric<>(prefix + "puts", stats.getPutCount()));
+				metrics.add(new Metric<>(prefix + "size", stats.getElementCountInMemory()));
+			}
+			metrics.add(new Metric<>("hibernate.query-cache.hits", statistics.getQueryCacheHitCount()));
+			metrics.add(new Metric<>("hibernate.query-cache.misses", statistics.getQueryCacheMissCount()));
+			metrics.add(new Metric<>("hibernate.query-cache.puts", statistics.getQueryCachePutCount()));
+			return metrics;
+		};
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.second-level-cache")
+class SecondLevelCacheConfig {
+
+	/**
+	 * Maximum number of entries held in memory, by region name.
+	 */
+	Map<String, Long> regions = new HashMap<>();
+}
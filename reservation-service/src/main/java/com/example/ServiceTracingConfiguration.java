@@ -0,0 +1,189 @@
+package com.example;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+@Configuration
+@EnableConfigurationProperties(ServiceTracingConfig.class)
+public class ServiceTracingConfiguration {
+
+	@Bean
+	static ServiceTracingPostProcessor serviceTracingPostProcessor(ServiceTracingConfig config) {
+		return new ServiceTracingPostProcessor(config);
+	}
+}
+
+/**
+ * Wraps the {@link ReservationsService} bean once every other post-processor is done with it, so tracing sits
+ * outside the transactional and monitoring proxy and never decides whether a call runs in a transaction.
+ * Not {@link org.springframework.core.Ordered}, which makes it run after the (ordered) auto-proxy creator.
+ */
+class ServiceTracingPostProcessor implements BeanPostProcessor {
+
+	private final ServiceTracingConfig config;
+
+	ServiceTracingPostProcessor(ServiceTracingConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		return bean instanceof ReservationsService
+			? ServiceTracing.wrap(ReservationsService.class, (ReservationsService) bean, config)
+			: bean;
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.tracing")
+class ServiceTracingConfig {
+
+	boolean enabled = true;
+
+	// fraction of calls traced, 0.0 to 1.0
+	double sampleRate = 0.01;
+
+	int maxLength = 256;
+
+	int maxElements = 5;
+}
+
+/**
+ * Logs a sample of calls made through an interface at TRACE, with their duration and a bounded rendering of arguments
+ * and result: strings are cut at {@code maxLength} and collections or pages show their size and first few elements.
+ * When tracing is disabled or TRACE is off for this logger at startup, {@link #wrap} hands back the target itself,
+ * so there is no proxy at all.
+ */
+@Slf4j
+class ServiceTracing implements InvocationHandler {
+
+	private final Object target;
+
+	private final double sampleRate;
+
+	private final int maxLength;
+
+	private final int maxElements;
+
+	private ServiceTracing(Object target, ServiceTracingConfig config) {
+		this.target = target;
+		this.sampleRate = config.sampleRate;
+		this.maxLength = config.maxLength;
+		this.maxElements = config.maxElements;
+	}
+
+	static <T> T wrap(Class<T> type, T target, ServiceTracingConfig config) {
+		if (!config.enabled || config.sampleRate <= 0.0 || !log.isTraceEnabled()) {
+			return target;
+		}
+		return proxy(type, target, config);
+	}
+
+	static <T> T proxy(Class<T> type, T target, ServiceTracingConfig config) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+			new ServiceTracing(target, config)));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return call(method, args);
+		}
+		long start = System.nanoTime();
+		Object result = null;
+		Throwable failure = null;
+		try {
+			result = call(method, args);
+			return result;
+		} catch (Throwable ex) {
+			failure = ex;
+			throw ex;
+		} finally {
+			long took = System.nanoTime() - start;
+			if (failure == null) {
+				log.trace("{}({}) took {}us, returned {}", method.getName(), render(args), took / 1000,
+					render(result));
+			} else {
+				log.trace("{}({}) took {}us, threw {}", method.getName(), render(args), took / 1000,
+					render(failure));
+			}
+		}
+	}
+
+	private Object call(Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	String render(Object value) {
+		StringBuilder out = new StringBuilder();
+		append(out, value);
+		return out.toString();
+	}
+
+	private void append(StringBuilder out, Object value) {
+		if (out.length() >= maxLength) {
+			return;
+		}
+		if (value instanceof Object[]) {
+			appendAll(out, Arrays.asList((Object[]) value).iterator(), ((Object[]) value).length, "", "");
+		} else if (value instanceof Slice) {
+			Slice<?> slice = (Slice<?>) value;
+			out.append(value.getClass().getSimpleName()).append("(number=").append(slice.getNumber())
+				.append(", size=").append(slice.getNumberOfElements()).append(") ");
+			appendAll(out, slice.iterator(), slice.getNumberOfElements(), "[", "]");
+		} else if (value instanceof Iterable) {
+			int size = value instanceof Collection ? ((Collection<?>) value).size() : -1;
+			appendAll(out, ((Iterable<?>) value).iterator(), size, "[", "]");
+		} else {
+			int room = maxLength - out.length();
+			String text = String.valueOf(value);
+			if (text.length() > room) {
+				out.append(text, 0, room).append("...");
+			} else {
+				out.append(text);
+			}
+		}
+	}
+
+	private void appendAll(StringBuilder out, Iterator<?> values, int size, String open, String close) {
+		out.append(open);
+		int shown = 0;
+		while (values.hasNext() && shown < maxElements && out.length() < maxLength) {
+			if (shown++ > 0) {
+				out.append(", ");
+			}
+			append(out, values.next());
+		}
+		if (values.hasNext()) {
+			out.append(", ...");
+			if (size >= 0) {
+				out.append(" (").append(size).append(" total)");
+			}
+		}
+		out.append(close);
+	}
+}
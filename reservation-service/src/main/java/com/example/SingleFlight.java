@@ -0,0 +1,62 @@
+package com.example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Coalesces concurrent calls with an equal key into one execution whose result (or exception) all callers share.
+ */
+class SingleFlight {
+
+	private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter calls;
+
+	private final Counter coalesced;
+
+	SingleFlight(String name, MetricRegistry registry) {
+		this.calls = registry.counter("single-flight." + name + ".calls");
+		this.coalesced = registry.counter("single-flight." + name + ".coalesced");
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T run(Object key, Supplier<T> call) {
+		calls.inc();
+		CompletableFuture<Object> own = new CompletableFuture<>();
+		CompletableFuture<Object> existing = inFlight.putIfAbsent(key, own);
+		if (existing != null) {
+			coalesced.inc();
+			return (T) join(existing);
+		}
+		try {
+			T result = call.get();
+			own.complete(result);
+			return result;
+		} catch (RuntimeException | Error ex) {
+			own.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlight.remove(key, own);
+		}
+	}
+
+	private static Object join(CompletableFuture<Object> call) {
+		try {
+			return call.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+}
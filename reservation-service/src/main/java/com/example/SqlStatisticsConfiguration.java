@@ -0,0 +1,208 @@
+package com.example;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SqlStatisticsConfig.class)
+public class SqlStatisticsConfiguration {
+
+	@Bean
+	SqlStatistics sqlStatistics(SqlStatisticsConfig config) {
+		SqlStatistics statistics = SqlStatistics.shared();
+		statistics.configure(TimeUnit.MILLISECONDS.toNanos(config.slowThresholdMs), config.maxShapes);
+		return statistics;
+	}
+
+	@Bean
+	SqlEndpoint sqlEndpoint(SqlStatistics statistics, SqlStatisticsConfig config) {
+		return new SqlEndpoint(statistics, config.top);
+	}
+}
+
+@Data
+@ConfigurationProperties(prefix = "reservations.sql")
+class SqlStatisticsConfig {
+
+	long slowThresholdMs = 200;
+
+	int maxShapes = 200;
+
+	int top = 10;
+}
+
+/**
+ * Per-statement-shape call counts, row counts and latency histograms. A shape is the SQL with literals replaced by
+ * {@code ?} and IN lists collapsed, so statements differing only in their values share one entry. Statements slower
+ * than the threshold are logged; once {@code maxShapes} shapes are tracked, new ones are counted under one overflow
+ * entry. One instance is shared by every pooled connection, since the pool creates its interceptors itself.
+ */
+@Slf4j
+class SqlStatistics {
+
+	static final String OVERFLOW = "(other statements)";
+
+	static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private static final SqlStatistics SHARED = new SqlStatistics();
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+	private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final ConcurrentMap<String, Shape> bySql = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Shape> byShape = new ConcurrentHashMap<>();
+
+	private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+	private volatile int maxShapes = 200;
+
+	static SqlStatistics shared() {
+		return SHARED;
+	}
+
+	void configure(long slowThresholdNanos, int maxShapes) {
+		this.slowThresholdNanos = slowThresholdNanos;
+		this.maxShapes = maxShapes;
+	}
+
+	Shape shape(String sql) {
+		Shape shape = bySql.get(sql);
+		if (shape != null) {
+			return shape;
+		}
+		String normalized = normalize(sql);
+		shape = byShape.get(normalized);
+		if (shape == null) {
+			shape = byShape.size() < maxShapes
+				? byShape.computeIfAbsent(normalized, Shape::new)
+				: byShape.computeIfAbsent(OVERFLOW, Shape::new);
+		}
+		if (bySql.size() < maxShapes * 4) {
+			bySql.putIfAbsent(sql, shape);
+		}
+		return shape;
+	}
+
+	void record(Shape shape, String sql, long nanos, long rows, boolean failed) {
+		shape.record(nanos, rows, failed);
+		if (nanos >= slowThresholdNanos) {
+			log.warn("SLOW SQL took {}ms{}: {}", TimeUnit.NANOSECONDS.toMillis(nanos), failed ? " and failed" : "",
+				sql);
+		}
+	}
+
+	// sorts described copies, since the live counters keep moving while sorting
+	List<Map<String, Object>> top(int limit, String key) {
+		return byShape.values().stream()
+			.map(Shape::describe)
+			.sorted(Comparator.comparingDouble((Map<String, Object> shape) -> (Double) shape.get(key)).reversed())
+			.limit(limit)
+			.collect(Collectors.toList());
+	}
+
+	static String normalize(String sql) {
+		String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = IN_LIST.matcher(shape).replaceAll("(?...)");
+		return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+	}
+
+	static class Shape {
+
+		private final String sql;
+
+		private final LongAdder calls = new LongAdder();
+
+		private final LongAdder failures = new LongAdder();
+
+		private final LongAdder rows = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final Histogram latency = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_NANOS, 2);
+
+		Shape(String sql) {
+			this.sql = sql;
+		}
+
+		void record(long nanos, long affected, boolean failed) {
+			calls.increment();
+			totalNanos.add(nanos);
+			rows.add(affected);
+			if (failed) {
+				failures.increment();
+			}
+			latency.recordValue(Math.max(1, Math.min(nanos, HIGHEST_TRACKABLE_NANOS)));
+		}
+
+		void rowRead() {
+			rows.increment();
+		}
+
+		Map<String, Object> describe() {
+			Map<String, Object> description = new LinkedHashMap<>();
+			long count = calls.sum();
+			description.put("sql", sql);
+			description.put("calls", count);
+			description.put("failures", failures.sum());
+			description.put("rows", rows.sum());
+			description.put("totalMs", millis(totalNanos.sum()));
+			description.put("meanMs", count == 0 ? 0.0 : millis(totalNanos.sum() / count));
+			description.put("p99Ms", millis(latency.getValueAtPercentile(99.0)));
+			description.put("maxMs", millis(latency.getMaxValue()));
+			return description;
+		}
+
+		private static double millis(long nanos) {
+			return nanos / 1_000_000.0;
+		}
+	}
+}
+
+/**
+ * {@code /sql}: the statements taking the most total time and those with the highest p99 latency.
+ */
+class SqlEndpoint extends AbstractEndpoint<Map<String, List<Map<String, Object>>>> {
+
+	private final SqlStatistics statistics;
+
+	private final int top;
+
+	SqlEndpoint(SqlStatistics statistics, int top) {
+		super("sql");
+		this.statistics = statistics;
+		this.top = top;
+	}
+
+	@Override
+	public Map<String, List<Map<String, Object>>> invoke() {
+		Map<String, List<Map<String, Object>>> report = new LinkedHashMap<>();
+		report.put("byTotalTime", statistics.top(top, "totalMs"));
+		report.put("byP99", statistics.top(top, "p99Ms"));
+		return report;
+	}
+}
@@ -0,0 +1,111 @@
+package com.example;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.apache.tomcat.jdbc.pool.interceptor.AbstractCreateStatementInterceptor;
+
+/**
+ * Tomcat JDBC pool interceptor timing every statement execution into {@link SqlStatistics#shared()}.
+ * Enabled through {@code spring.datasource.tomcat.jdbc-interceptors}; the pool instantiates it per connection.
+ */
+public class SqlStatisticsInterceptor extends AbstractCreateStatementInterceptor {
+
+	@Override
+	public Object createStatement(Object proxy, Method method, Object[] args, Object statement, long time) {
+		String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+		Class<?> type = PREPARE_CALL.equals(method.getName()) ? CallableStatement.class
+			: PREPARE_STATEMENT.equals(method.getName()) ? PreparedStatement.class
+			: Statement.class;
+		return Proxy.newProxyInstance(SqlStatisticsInterceptor.class.getClassLoader(), new Class<?>[] { type },
+			new TimedStatement(statement, sql, SqlStatistics.shared()));
+	}
+
+	@Override
+	public void closeInvoked() {
+	}
+
+	static class TimedStatement implements InvocationHandler {
+
+		private final Object delegate;
+
+		private final String sql;
+
+		private final SqlStatistics statistics;
+
+		// shape of the last execution, so rows read through getResultSet() are attributed to it
+		private SqlStatistics.Shape executed;
+
+		TimedStatement(Object delegate, String sql, SqlStatistics statistics) {
+			this.delegate = delegate;
+			this.sql = sql;
+			this.statistics = statistics;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (!name.startsWith("execute")) {
+				Object result = call(delegate, method, args);
+				return "getResultSet".equals(name) && result != null ? counting((ResultSet) result) : result;
+			}
+			String statement = sql != null ? sql
+				: args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "(batch)";
+			executed = statistics.shape(statement);
+			long start = System.nanoTime();
+			boolean failed = true;
+			Object result = null;
+			try {
+				result = call(delegate, method, args);
+				failed = false;
+			} finally {
+				statistics.record(executed, statement, System.nanoTime() - start, rows(result), failed);
+			}
+			return result instanceof ResultSet ? counting((ResultSet) result) : result;
+		}
+
+		private static long rows(Object result) {
+			if (result instanceof Integer || result instanceof Long) {
+				return Math.max(0, ((Number) result).longValue());
+			}
+			if (result instanceof int[]) {
+				long rows = 0;
+				for (int count : (int[]) result) {
+					rows += Math.max(0, count);
+				}
+				return rows;
+			}
+			return 0;
+		}
+
+		// rows read by a query are counted as the caller moves through its result set
+		private ResultSet counting(ResultSet results) {
+			SqlStatistics.Shape shape = executed;
+			if (shape == null) {
+				return results;
+			}
+			return (ResultSet) Proxy.newProxyInstance(SqlStatisticsInterceptor.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+					Object result = call(results, method, args);
+					if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+						shape.rowRead();
+					}
+					return result;
+				});
+		}
+
+		private static Object call(Object target, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+		}
+	}
+}
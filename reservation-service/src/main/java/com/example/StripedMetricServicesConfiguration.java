@@ -0,0 +1,131 @@
+package com.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StripedMetricServicesConfiguration {
+
+	// replaces Boot's own counter and gauge services, which back off when one is defined
+	@Bean
+	StripedMetricServices stripedMetricServices(MetricRegistry registry) {
+		return new StripedMetricServices(registry);
+	}
+}
+
+/**
+ * {@link CounterService} and {@link GaugeService} keeping each counter in a {@link LongAdder}, so concurrent updates
+ * of the same counter land on different cells instead of contending on one. Every counter and gauge is bridged into
+ * the registry under Boot's {@code counter.} and {@code gauge.} prefixes: counters as a {@link Counter} reading the
+ * adder, so reporters keep naming them as counters (Graphite as {@code <name>.count}), gauges as a gauge.
+ */
+class StripedMetricServices implements CounterService, GaugeService {
+
+	private final MetricRegistry registry;
+
+	private final ConcurrentMap<String, StripedCounter> counters = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, GaugeValue> gauges = new ConcurrentHashMap<>();
+
+	StripedMetricServices(MetricRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void increment(String metricName) {
+		counter(metricName).inc();
+	}
+
+	// one update for a batch, where CounterService would take one call per row
+	void increment(String metricName, long delta) {
+		counter(metricName).inc(delta);
+	}
+
+	@Override
+	public void decrement(String metricName) {
+		counter(metricName).dec();
+	}
+
+	@Override
+	public void reset(String metricName) {
+		counter(metricName).adder.reset();
+	}
+
+	@Override
+	public void submit(String metricName, double value) {
+		String name = prefixed("gauge.", metricName);
+		GaugeValue gauge = gauges.get(name);
+		if (gauge == null) {
+			gauge = gauges.computeIfAbsent(name, key -> register(key, new GaugeValue()));
+		}
+		gauge.value = value;
+	}
+
+	long count(String metricName) {
+		StripedCounter counter = counters.get(prefixed("counter.", metricName));
+		return counter == null ? 0 : counter.getCount();
+	}
+
+	// keyed like the registry, so "create" and "counter.create" are one counter
+	private StripedCounter counter(String metricName) {
+		String name = prefixed("counter.", metricName);
+		StripedCounter counter = counters.get(name);
+		if (counter != null) {
+			return counter;
+		}
+		return counters.computeIfAbsent(name, key -> register(key, new StripedCounter()));
+	}
+
+	private <T extends Metric> T register(String name, T metric) {
+		try {
+			return registry.register(name, metric);
+		} catch (IllegalArgumentException ex) {
+			// already registered by someone else; keep counting locally
+			return metric;
+		}
+	}
+
+	private static String prefixed(String prefix, String name) {
+		return name.startsWith(prefix) ? name : prefix + name;
+	}
+
+	static final class StripedCounter extends Counter {
+
+		final LongAdder adder = new LongAdder();
+
+		@Override
+		public void inc(long n) {
+			adder.add(n);
+		}
+
+		@Override
+		public void dec(long n) {
+			adder.add(-n);
+		}
+
+		@Override
+		public long getCount() {
+			return adder.sum();
+		}
+	}
+
+	static final class GaugeValue implements Gauge<Double> {
+
+		volatile double value;
+
+		@Override
+		public Double getValue() {
+			return value;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncGraphiteSenderTest {
+
+	MetricRegistry registry = new MetricRegistry();
+	AsyncGraphiteSender sender;
+
+	@After
+	public void stop() {
+		if (sender != null) {
+			sender.shutdown();
+		}
+	}
+
+	@Test
+	public void should_ship_queued_datapoints_to_graphite() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			// given
+			server.setSoTimeout(5_000);
+			PlaintextGraphite graphite = new PlaintextGraphite(server.getInetAddress().getHostAddress(),
+				server.getLocalPort());
+			sender = new AsyncGraphiteSender(graphite, 10, 10, 60, registry);
+			long now = System.currentTimeMillis() / 1000;
+
+			// when
+			sender.connect();
+			sender.send("reservations.count", "42", now);
+			sender.send("reservations.timer.find all", "7", now);
+			sender.flush();
+
+			// then
+			try (Socket socket = server.accept();
+					BufferedReader lines = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+				assertThat(lines.readLine()).isEqualTo("reservations.count 42 " + now);
+				assertThat(lines.readLine()).isEqualTo("reservations.timer.find-all 7 " + now);
+			}
+			assertThat(registry.counter("graphite.dropped").getCount()).isZero();
+			assertThat(registry.counter("graphite.late").getCount()).isZero();
+		}
+	}
+
+	@Test
+	public void should_count_datapoints_shipped_late() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			// given
+			server.setSoTimeout(5_000);
+			PlaintextGraphite graphite = new PlaintextGraphite(server.getInetAddress().getHostAddress(),
+				server.getLocalPort());
+			sender = new AsyncGraphiteSender(graphite, 10, 10, 60, registry);
+			long now = System.currentTimeMillis() / 1000;
+
+			// when
+			sender.connect();
+			sender.send("reservations.count", "41", now - 120);
+			sender.send("reservations.count", "42", now);
+			sender.flush();
+
+			// then
+			try (Socket socket = server.accept();
+					BufferedReader lines = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+				assertThat(lines.readLine()).isEqualTo("reservations.count 41 " + (now - 120));
+				assertThat(lines.readLine()).isEqualTo("reservations.count 42 " + now);
+			}
+			assertThat(registry.counter("graphite.late").getCount()).isEqualTo(1);
+			assertThat(registry.counter("graphite.dropped").getCount()).isZero();
+		}
+	}
+
+	@Test
+	public void should_drop_datapoints_when_queue_is_full() throws Exception {
+		// given
+		sender = new AsyncGraphiteSender(new PlaintextGraphite("localhost", 1), 1, 10, 60, registry);
+
+		// when
+		sender.send("reservations.count", "1", 0);
+		sender.send("reservations.count", "2", 0);
+
+		// then
+		assertThat(registry.counter("graphite.dropped").getCount()).isEqualTo(1);
+		assertThat(registry.getGauges().get("graphite.queued").getValue()).isEqualTo(1);
+	}
+}
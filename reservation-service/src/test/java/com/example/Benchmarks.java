@@ -0,0 +1,71 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.profile.Profiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs the JMH benchmarks kept next to the tests ({@code *Benchmark}, which surefire does not pick up), e.g.
+ * <pre>
+ * mvn -B test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.example.StripedCounterBenchmark"
+ * </pre>
+ */
+final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	@SafeVarargs
+	static void run(Class<?> benchmark, Class<? extends Profiler>... profilers) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder()
+			.include(benchmark.getName())
+			.forks(1)
+			.warmupIterations(5)
+			.measurementIterations(10);
+		for (Class<? extends Profiler> profiler : profilers) {
+			options.addProfiler(profiler);
+		}
+		new Runner(options.build()).run();
+	}
+
+	// the application on a private in-memory database, without web server, warm-up, tracing or Graphite
+	static ConfigurableApplicationContext start(String database, String... properties) {
+		List<String> all = new ArrayList<>(Arrays.asList(
+			"spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+			"spring.main.banner-mode=off",
+			"logging.level.root=WARN",
+			"graphite.enabled=false",
+			"reservations.warmup.enabled=false",
+			"reservations.tracing.enabled=false"));
+		all.addAll(Arrays.asList(properties));
+		return new SpringApplicationBuilder(ReservationServiceApplication.class)
+			.web(false)
+			.properties(all.toArray(new String[all.size()]))
+			.run();
+	}
+
+	/**
+	 * Inserts {@code rows} reservations in one statement, named {@code Reservation-<id>} and spread over ten
+	 * languages {@code Lang0..Lang9}, after the rows already there. Returns the first inserted id.
+	 */
+	static long seed(ConfigurableApplicationContext context, int rows) {
+		JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+		long first = jdbc.queryForObject("select coalesce(max(id), 0) + 1 from reservation", Long.class);
+		jdbc.update("insert into reservation (id, name, name_key, lang, lang_key, version) "
+			+ "select x, 'Reservation-' || x, 'reservation-' || x, 'Lang' || mod(x, 10), 'lang' || mod(x, 10), 0 "
+			+ "from system_range(?, ?)", first, first + rows - 1);
+		jdbc.execute("analyze");
+		context.getBean(ReservationsRepository.class).alignIdSequence();
+		return first;
+	}
+}
@@ -0,0 +1,40 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+public class HdrHistogramReservoirTest {
+
+	HdrHistogramReservoir reservoir = new HdrHistogramReservoir(TimeUnit.SECONDS.toNanos(1), 2, 0, TimeUnit.MILLISECONDS);
+
+	@Test
+	public void should_report_percentiles_of_last_interval() throws Exception {
+		// given
+		for (long value = 1; value <= 1000; value++) {
+			reservoir.update(value);
+		}
+
+		// when
+		Snapshot snapshot = reservoir.getSnapshot();
+
+		// then
+		assertThat(snapshot.size()).isEqualTo(1000);
+		assertThat(snapshot.getMedian()).isCloseTo(500, within(10.0));
+		assertThat(snapshot.get999thPercentile()).isCloseTo(999, within(10.0));
+		assertThat(snapshot.getMax()).isCloseTo(1000, within(10L));
+		assertThat(reservoir.getSnapshot().size()).isZero();
+	}
+
+	@Test
+	public void should_clamp_values_above_highest_trackable() throws Exception {
+		// when
+		reservoir.update(TimeUnit.SECONDS.toNanos(5));
+
+		// then
+		assertThat(reservoir.getSnapshot().getMax()).isCloseTo(TimeUnit.SECONDS.toNanos(1), within(20_000_000L));
+	}
+}
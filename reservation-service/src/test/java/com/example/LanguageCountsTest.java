@@ -0,0 +1,53 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class LanguageCountsTest {
+
+	ReservationsRepository repository = Mockito.mock(ReservationsRepository.class);
+	LanguageCounts langs = new LanguageCounts(repository);
+
+	@Test
+	public void should_keep_updates_arriving_while_rebuilding() throws Exception {
+		// given
+		langs.increment("Java");
+		langs.increment("PLSQL");
+		when(repository.countByLang()).thenAnswer(invocation -> {
+			// reservations created after the counts were taken
+			langs.increment("Java");
+			langs.increment("Kotlin");
+			return Arrays.asList(new Object[] { "Java", 5L }, new Object[] { "C++", 2L });
+		});
+
+		// when
+		langs.rebuild();
+
+		// then
+		assertThat(langs.snapshot())
+			.containsEntry("Java", 6L)
+			.containsEntry("C++", 2L)
+			.containsEntry("Kotlin", 1L)
+			.doesNotContainKey("PLSQL");
+	}
+
+	@Test
+	public void should_drop_languages_gone_from_database() throws Exception {
+		// given
+		when(repository.countByLang()).thenReturn(Collections.singletonList(new Object[] { "Java", 1L }));
+		langs.rebuild();
+		when(repository.countByLang()).thenReturn(Collections.emptyList());
+
+		// when
+		langs.rebuild();
+
+		// then
+		assertThat(langs.snapshot()).isEmpty();
+	}
+}
@@ -0,0 +1,70 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@code save(Iterable)} of {@code size} new reservations with JDBC batching off ({@code batchSize} 1, one INSERT
+ * round trip per row) and on. Ids come from the pooled-lo sequence in both cases, one sequence call per 50 rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReservationBulkInsertBenchmark {
+
+	@Param({ "1", "50" })
+	int batchSize;
+
+	@Param("1000")
+	int size;
+
+	ConfigurableApplicationContext context;
+
+	ReservationsRepository reservations;
+
+	List<Reservation> batch;
+
+	long next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = Benchmarks.start("bulk-insert-" + batchSize,
+			"spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+		reservations = context.getBean(ReservationsRepository.class);
+	}
+
+	@Setup(Level.Invocation)
+	public void newBatch() {
+		batch = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			batch.add(new Reservation("Bulk-" + next++, "Lang" + (i % 10)));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Reservation> saveAll() {
+		return reservations.save(batch);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(ReservationBulkInsertBenchmark.class);
+	}
+}
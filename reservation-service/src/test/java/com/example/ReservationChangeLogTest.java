@@ -0,0 +1,77 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.codahale.metrics.MetricRegistry;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class ReservationChangeLogTest {
+
+	ReservationChangesRepository changes = Mockito.mock(ReservationChangesRepository.class);
+	ReservationCache cache = Mockito.mock(ReservationCache.class);
+	Cache secondLevel = Mockito.mock(Cache.class);
+	ReservationChangeLog log = new ReservationChangeLog(changes, cache, entityManagerFactory(secondLevel),
+		Mockito.mock(PlatformTransactionManager.class), new MetricRegistry(), 5000, 3600000);
+
+	@Test
+	public void should_evict_second_level_caches_for_changes_of_other_nodes() throws Exception {
+		// given
+		ReservationChange change = new ReservationChange(5L, "other-node", new Date());
+		change.setId(1L);
+		when(changes.findByChangedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(Date.class), anyLong(),
+			any(Pageable.class))).thenReturn(Collections.singletonList(change));
+
+		// when
+		log.poll();
+
+		// then
+		verify(cache).invalidate(5L);
+		verify(secondLevel).evictEntity(Reservation.class, 5L);
+		verify(secondLevel).evictQueryRegion(Reservation.QUERY_CACHE_REGION);
+	}
+
+	@Test
+	public void should_keep_query_cache_without_changes() throws Exception {
+		// given
+		when(changes.findByChangedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(Date.class), anyLong(),
+			any(Pageable.class))).thenReturn(Collections.emptyList());
+
+		// when
+		log.poll();
+
+		// then
+		verify(secondLevel, never()).evictQueryRegion(anyString());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void should_not_fail_caller_when_append_fails() throws Exception {
+		// given
+		when(changes.save(any(List.class))).thenThrow(new IllegalStateException("insert failed"));
+
+		// when
+		Throwable thrown = catchThrowable(() -> log.append(5L));
+
+		// then
+		assertThat(thrown).isNull();
+	}
+
+	private static EntityManagerFactory entityManagerFactory(Cache secondLevel) {
+		SessionFactory sessionFactory = Mockito.mock(SessionFactory.class);
+		when(sessionFactory.getCache()).thenReturn(secondLevel);
+		EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+		when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+		return entityManagerFactory;
+	}
+}
@@ -0,0 +1,31 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ReservationCountTest {
+
+	ReservationsRepository repository = Mockito.mock(ReservationsRepository.class);
+	ReservationCount count = new ReservationCount(repository, new MetricRegistry());
+
+	@Test
+	public void should_keep_events_arriving_while_reconciling() throws Exception {
+		// given
+		count.add(3);
+		when(repository.count()).thenAnswer(invocation -> {
+			// a reservation created after the count was taken
+			count.add(1);
+			return 10L;
+		});
+
+		// when
+		count.reconcile();
+
+		// then
+		assertThat(count.get()).isEqualTo(11L);
+	}
+}
@@ -0,0 +1,103 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * 8 threads creating reservations where every name is tried twice, so about half the attempts conflict: the former
+ * {@code findByName} pre-read followed by an insert, against inserting first and translating the unique constraint
+ * violation. Besides throughput, the counters report conflicts answered cleanly and, for the pre-read, races that
+ * passed the check and still failed on insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class ReservationCreateContentionBenchmark {
+
+	ConfigurableApplicationContext context;
+
+	ReservationsRepository reservations;
+
+	AtomicLong attempts = new AtomicLong();
+
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class Outcomes {
+
+		public long created;
+
+		public long conflicts;
+
+		public long raced;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			created = 0;
+			conflicts = 0;
+			raced = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = Benchmarks.start("create-contention");
+		reservations = context.getBean(ReservationsRepository.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void readThenInsert(Outcomes outcomes) {
+		String name = nextName();
+		if (reservations.findByName(name).isPresent()) {
+			outcomes.conflicts++;
+			return;
+		}
+		try {
+			reservations.saveAndFlush(new Reservation(name, "Java"));
+			outcomes.created++;
+		} catch (DataIntegrityViolationException ex) {
+			outcomes.raced++;
+		}
+	}
+
+	@Benchmark
+	public void insertFirst(Outcomes outcomes) {
+		try {
+			reservations.saveAndFlush(new Reservation(nextName(), "Java"));
+			outcomes.created++;
+		} catch (DataIntegrityViolationException ex) {
+			if (!ReservationsServiceImpl.isNameConflict(ex)) {
+				throw ex;
+			}
+			outcomes.conflicts++;
+		}
+	}
+
+	// consecutive attempts share a name, so two threads usually race for it
+	private String nextName() {
+		return "Contended-" + attempts.getAndIncrement() / 2;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(ReservationCreateContentionBenchmark.class);
+	}
+}
@@ -0,0 +1,68 @@
+package com.example;
+
+import static com.example.QReservation.*;
+import static com.example.ReservationsRepository.Spec.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Case-insensitive lookup of one reservation by name among {@code rows}: the former {@code lower(name) = ?}
+ * predicate, which scans the table, against the indexed {@code name_key} one {@link ReservationsRepository.Spec} uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReservationFilterBenchmark {
+
+	@Param("5000000")
+	int rows;
+
+	ConfigurableApplicationContext context;
+
+	ReservationsRepository reservations;
+
+	long first;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = Benchmarks.start("filter");
+		first = Benchmarks.seed(context, rows);
+		reservations = context.getBean(ReservationsRepository.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Iterable<Reservation> lowerName() {
+		return reservations.findAll(reservation.name.equalsIgnoreCase(anyName()));
+	}
+
+	@Benchmark
+	public Iterable<Reservation> nameKey() {
+		return reservations.findAll(withName(anyName()));
+	}
+
+	private String anyName() {
+		return "RESERVATION-" + (first + ThreadLocalRandom.current().nextInt(rows));
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(ReservationFilterBenchmark.class);
+	}
+}
@@ -0,0 +1,90 @@
+package com.example;
+
+import static com.example.ReservationsRepository.Spec.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Reads behind the GETs as managed entities, as before, and as {@link ReservationView} projections: one page of
+ * {@code pageSize} and one row by id. Second-level and query caches are off so every read materializes rows. Run
+ * with the GC profiler; {@code gc.alloc.rate.norm} is the heap allocated per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReservationProjectionBenchmark {
+
+	@Param("100000")
+	int rows;
+
+	@Param("20")
+	int pageSize;
+
+	ConfigurableApplicationContext context;
+
+	ReservationsRepository reservations;
+
+	Pageable pageable;
+
+	long first;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = Benchmarks.start("projection",
+			"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+			"spring.jpa.properties.hibernate.cache.use_query_cache=false");
+		first = Benchmarks.seed(context, rows);
+		reservations = context.getBean(ReservationsRepository.class);
+		pageable = new PageRequest(0, pageSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Page<Reservation> entityPage() {
+		return reservations.findAll(withLang("lang3"), pageable);
+	}
+
+	@Benchmark
+	public Page<ReservationView> projectionPage() {
+		return reservations.findViews(withLang("lang3"), pageable);
+	}
+
+	@Benchmark
+	public Reservation entityById() {
+		return reservations.findOne(anyId());
+	}
+
+	@Benchmark
+	public ReservationView projectionById() {
+		return reservations.findViewById(anyId()).orElse(null);
+	}
+
+	private long anyId() {
+		return first + ThreadLocalRandom.current().nextInt(rows);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(ReservationProjectionBenchmark.class, GCProfiler.class);
+	}
+}
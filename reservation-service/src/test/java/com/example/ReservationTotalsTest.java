@@ -0,0 +1,45 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.querydsl.core.types.Predicate;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ReservationTotalsTest {
+
+	ReservationsRepository repository = Mockito.mock(ReservationsRepository.class);
+	ReservationTotals totals = new ReservationTotals(repository, 30000, 600000);
+
+	@Test
+	public void should_count_each_filter_once() throws Exception {
+		// given
+		when(repository.count(any(Predicate.class))).thenReturn(42L);
+
+		// when
+		long first = totals.approximateCount("Jan", "Java");
+		long second = totals.approximateCount("JAN", "java");
+
+		// then
+		assertThat(first).isEqualTo(42L);
+		assertThat(second).isEqualTo(42L);
+		verify(repository, times(1)).count(any(Predicate.class));
+	}
+
+	@Test
+	public void should_keep_caching_new_filters_once_full() throws Exception {
+		// given
+		when(repository.count(any(Predicate.class))).thenReturn(1L);
+		for (int i = 0; i < ReservationTotals.MAX_ENTRIES * 2; i++) {
+			totals.approximateCount("name-" + i, null);
+		}
+
+		// when
+		totals.approximateCount("Jan", null);
+		totals.approximateCount("Jan", null);
+
+		// then
+		verify(repository, times(ReservationTotals.MAX_ENTRIES * 2 + 1)).count(any(Predicate.class));
+	}
+}
@@ -0,0 +1,79 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+public class ReservationWarmupTest {
+
+	ReservationsService service = Mockito.mock(ReservationsService.class);
+	ReservationsRepository repository = Mockito.mock(ReservationsRepository.class);
+	ReservationCache cache = new ReservationCache(100, 60, 5, 100, new MetricRegistry());
+	ReservationWarmupConfig config = new ReservationWarmupConfig();
+
+	@Test
+	public void should_preload_hot_pages_and_report_ready_when_done() throws Exception {
+		// given
+		config.setPages(2);
+		ReservationView view = new ReservationView(1L, "Marek", "Java", 0L);
+		when(repository.countByLang()).thenReturn(Collections.singletonList(new Object[] { "Java", 1L }));
+		when(service.findAll(anyString(), anyString(), any(Pageable.class)))
+			.thenReturn(new PageImpl<>(Collections.singletonList(view)));
+		ReservationWarmup warmup = new ReservationWarmup(service, repository, cache, config);
+		assertThat(warmup.isReady()).isFalse();
+
+		// when
+		warmup.start();
+		awaitReady(warmup);
+
+		// then
+		assertThat(warmup.phase()).isEqualTo(ReservationWarmup.Phase.DONE);
+		assertThat(warmup.completed()).isEqualTo(3);
+		verify(service).findAll(null, "Java", new PageRequest(0, 20));
+		assertThat(cache.get(1L, id -> { throw new AssertionError("should be warm"); })).contains(view);
+	}
+
+	@Test
+	public void should_report_ready_once_timeout_expires() throws Exception {
+		// given
+		config.setTimeoutMs(0);
+		ReservationWarmup warmup = new ReservationWarmup(service, repository, cache, config);
+
+		// when
+		warmup.start();
+		awaitReady(warmup);
+
+		// then
+		assertThat(warmup.phase()).isEqualTo(ReservationWarmup.Phase.TIMED_OUT);
+		verify(service, never()).findAll(anyString(), anyString(), any(Pageable.class));
+	}
+
+	@Test
+	public void should_be_ready_when_disabled() throws Exception {
+		// given
+		config.setEnabled(false);
+
+		// when
+		ReservationWarmup warmup = new ReservationWarmup(service, repository, cache, config);
+
+		// then
+		assertThat(warmup.isReady()).isTrue();
+		assertThat(warmup.phase()).isEqualTo(ReservationWarmup.Phase.DISABLED);
+	}
+
+	private static void awaitReady(ReservationWarmup warmup) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!warmup.isReady() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+}
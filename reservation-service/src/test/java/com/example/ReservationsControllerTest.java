@@ -4,6 +4,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.Collections;
 import java.util.Optional;
 
 import org.junit.Test;
@@ -11,6 +12,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -33,7 +35,8 @@ public class ReservationsControllerTest {
 	public void should_return_404_when_not_found() throws Exception {
 		// given
 		Long id = 5L;
-		when(service.findOne(id)).thenReturn(Optional.empty());
+		when(service.findCachedView(id)).thenReturn(Optional.empty());
+		when(service.findView(id)).thenReturn(Optional.empty());
 
 		// when
 		mvc.perform(get("/custom-reservations/{id}", id))
@@ -46,8 +49,9 @@ public class ReservationsControllerTest {
 	public void should_return_200_when_found() throws Exception {
 		// given
 		Long id = 5L;
-		Reservation reservation = new Reservation(id, "Jan", "Java");
-		when(service.findOne(id)).thenReturn(Optional.of(reservation));
+		ReservationView reservation = new ReservationView(id, "Jan", "Java", 0L);
+		when(service.findCachedView(id)).thenReturn(Optional.empty());
+		when(service.findView(id)).thenReturn(Optional.of(reservation));
 
 		// when
 		mvc.perform(get("/custom-reservations/{id}", id))
@@ -58,4 +62,79 @@ public class ReservationsControllerTest {
 			.andExpect(jsonPath("@.name").value("Jan"))
 			.andExpect(jsonPath("@.lang").value("Java"));
 	}
+
+	@Test
+	public void should_return_next_cursor_in_cursor_mode() throws Exception {
+		// given
+		ReservationView reservation = new ReservationView(5L, "Jan", "Java", 0L);
+		when(service.listVersion()).thenReturn("cafe-1");
+		when(service.findAll(null, "java", "", 1))
+			.thenReturn(new CursorPage<>(Collections.singletonList(reservation), CursorPage.encode(5L)));
+
+		// when
+		mvc.perform(get("/custom-reservations").param("lang", "java").param("cursor", "").param("size", "1"))
+
+		// then
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("@.content[0].name").value("Jan"))
+			.andExpect(jsonPath("@.next").value(CursorPage.encode(5L)));
+	}
+
+	@Test
+	public void should_page_by_cursor_when_count_is_also_disabled() throws Exception {
+		// given
+		when(service.listVersion()).thenReturn("cafe-1");
+		when(service.findAll(null, null, "", 20)).thenReturn(new CursorPage<>(Collections.emptyList(), null));
+
+		// when
+		mvc.perform(get("/custom-reservations").param("cursor", "").param("count", "false"))
+
+		// then
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("@.content").isEmpty());
+		verify(service, never()).findSlice(any(), any(), any(Pageable.class));
+	}
+
+	@Test
+	public void should_return_304_for_unchanged_reservation() throws Exception {
+		// given
+		Long id = 5L;
+		when(service.findCachedView(id)).thenReturn(Optional.empty());
+		when(service.findView(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 3L)));
+
+		// when
+		mvc.perform(get("/custom-reservations/{id}", id).header("If-None-Match", "\"5-3\""))
+
+		// then
+			.andExpect(status().isNotModified())
+			.andExpect(header().string("ETag", "\"5-3\""));
+	}
+
+	@Test
+	public void should_return_304_for_cached_reservation_without_lookup() throws Exception {
+		// given
+		Long id = 5L;
+		when(service.findCachedView(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 3L)));
+
+		// when
+		mvc.perform(get("/custom-reservations/{id}", id).header("If-None-Match", "\"5-3\""))
+
+		// then
+			.andExpect(status().isNotModified())
+			.andExpect(header().string("ETag", "\"5-3\""));
+		verify(service, never()).findView(id);
+	}
+
+	@Test
+	public void should_return_304_for_unchanged_page_without_querying() throws Exception {
+		// given
+		when(service.listVersion()).thenReturn("cafe-1");
+
+		// when
+		mvc.perform(get("/custom-reservations").param("lang", "java").header("If-None-Match", "\"cafe-1\""))
+
+		// then
+			.andExpect(status().isNotModified());
+		verify(service, never()).findAll(any(), any(), any(Pageable.class));
+	}
 }
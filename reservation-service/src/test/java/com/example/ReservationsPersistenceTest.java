@@ -1,9 +1,20 @@
 package com.example;
 
+import static com.example.ReservationsRepository.Spec.*;
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.codahale.metrics.MetricRegistry;
+import com.querydsl.core.BooleanBuilder;
+import org.hibernate.Session;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
@@ -42,4 +53,178 @@ public class ReservationsPersistenceTest {
         assertThat(result.getId()).isEqualTo(reservation.getId());
         assertThat(result.getName()).isEqualTo(reservation.getName());
     }
+
+    @Test
+    public void should_find_by_name_and_lang_ignoring_case() throws Exception {
+        // given
+        Reservation reservation = entityManager.persistAndFlush(new Reservation("Grzegorz", "C++"));
+        entityManager.clear();
+
+        // when
+        Iterable<Reservation> result = reservations.findAll(new BooleanBuilder()
+            .and(withName("GRZEGORZ"))
+            .and(withLang("c++")));
+
+        // then
+        assertThat(result).extracting(Reservation::getId).containsExactly(reservation.getId());
+    }
+
+    @Test
+    public void should_read_view_without_managing_entity() throws Exception {
+        // given
+        Reservation reservation = entityManager.persistAndFlush(new Reservation("Marek", "Java"));
+        entityManager.clear();
+
+        // when
+        ReservationView result = reservations.findViewById(reservation.getId()).get();
+
+        // then
+        assertThat(result).isEqualTo(new ReservationView(reservation.getId(), "Marek", "Java", 0L));
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void should_read_current_view_for_writes() throws Exception {
+        // given
+        Reservation reservation = entityManager.persistAndFlush(new Reservation("Tomek", "PLSQL"));
+        entityManager.clear();
+
+        // when
+        ReservationView result = reservations.findCurrentViewById(reservation.getId()).get();
+
+        // then
+        assertThat(result).isEqualTo(new ReservationView(reservation.getId(), "Tomek", "PLSQL", 0L));
+        assertThat(reservations.findCurrentViewById(-1L).isPresent()).isFalse();
+    }
+
+    @Test
+    public void should_update_only_when_lang_is_kept() throws Exception {
+        // given
+        Reservation reservation = entityManager.persistAndFlush(new Reservation("Artur", "Java"));
+        entityManager.clear();
+
+        // when
+        long changed = reservations.updateKeepingLang(reservation.getId(), 0L, "Arturo", "C++");
+        long kept = reservations.updateKeepingLang(reservation.getId(), 0L, "Arturo", "Java");
+
+        // then
+        assertThat(changed).isZero();
+        assertThat(kept).isEqualTo(1L);
+        assertThat(reservations.findViewById(reservation.getId()).get())
+            .isEqualTo(new ReservationView(reservation.getId(), "Arturo", "Java", 1L));
+    }
+
+    @Test
+    public void should_report_langs_of_rows_it_deleted() throws Exception {
+        // given
+        Reservation java = entityManager.persistAndFlush(new Reservation("Rafał", "Java"));
+        Reservation cpp = entityManager.persistAndFlush(new Reservation("Andrzej", "C++"));
+        entityManager.clear();
+
+        // when
+        List<String> langs = reservations.deleteReturningLangs(Arrays.asList(java.getId(), cpp.getId(), -1L));
+        List<String> again = reservations.deleteReturningLangs(Arrays.asList(java.getId(), cpp.getId()));
+
+        // then
+        assertThat(langs).containsOnly("Java", "C++").hasSize(2);
+        assertThat(again).isEmpty();
+        assertThat(reservations.findViewById(java.getId()).isPresent()).isFalse();
+    }
+
+    @Test
+    public void should_restart_id_sequence_after_existing_rows() throws Exception {
+        // given
+        entityManager.getEntityManager()
+            .createNativeQuery("insert into reservation (id, name, lang, version) values (100000, 'Legacy', 'Java', 0)")
+            .executeUpdate();
+
+        // when
+        boolean restarted = reservations.alignIdSequence();
+
+        // then
+        assertThat(restarted).isTrue();
+        assertThat(((Number) entityManager.getEntityManager()
+            .createNativeQuery("select next value for " + Reservation.ID_SEQUENCE)
+            .getSingleResult()).longValue()).isGreaterThan(100000L);
+        assertThat(reservations.alignIdSequence()).isFalse();
+    }
+
+    @Test
+    public void should_page_by_cursor_through_rows_sharing_a_language() throws Exception {
+        // given
+        Stream.of("Ala", "Ola", "Ela", "Iza", "Ewa")
+            .forEach(name -> entityManager.persist(new Reservation(name, "Kotlin")));
+        entityManager.persist(new Reservation("Bob", "Scala"));
+        entityManager.flush();
+        entityManager.clear();
+        ReservationsService service = service();
+
+        // when
+        List<List<String>> pages = new ArrayList<>();
+        String cursor = "";
+        do {
+            CursorPage<ReservationView> page = service.findAll(null, "kotlin", cursor, 2);
+            pages.add(page.getContent().stream().map(ReservationView::getName).collect(Collectors.toList()));
+            cursor = page.getNext();
+        } while (cursor != null);
+
+        // then
+        assertThat(pages).hasSize(3);
+        assertThat(pages.get(0)).containsExactly("Ala", "Ola");
+        assertThat(pages.get(1)).containsExactly("Ela", "Iza");
+        assertThat(pages.get(2)).containsExactly("Ewa");
+        assertThat(service.findAll(null, "kotlin", "", 5).getNext()).isNull();
+    }
+
+    @Test
+    public void should_reject_invalid_cursor() throws Exception {
+        // when
+        Throwable thrown = catchThrowable(() -> service().findAll(null, "kotlin", "not-a-cursor!", 2));
+
+        // then
+        assertThat(thrown).isInstanceOf(InvalidCursor.class);
+    }
+
+    @Test
+    public void should_find_by_lang() throws Exception {
+        // given
+        entityManager.persist(new Reservation("Rafał", "C++"));
+        entityManager.persist(new Reservation("Artur", "OracleForms"));
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        List<Reservation> result = reservations.findByLang("C++");
+
+        // then
+        assertThat(result).extracting(Reservation::getName).containsExactly("Rafał");
+    }
+
+    @Test
+    public void should_stream_by_lang() throws Exception {
+        // given
+        entityManager.persist(new Reservation("Tomek", "PLSQL"));
+        entityManager.persist(new Reservation("Tomasz", "PLSQL"));
+        entityManager.persist(new Reservation("Andrzej", "C++"));
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        List<String> names;
+        try (Stream<Reservation> result = reservations.streamByLang("PLSQL")) {
+            names = result.map(Reservation::getName).collect(Collectors.toList());
+        }
+
+        // then
+        assertThat(names).containsOnly("Tomek", "Tomasz");
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    // the real keyset queries behind the service, with everything but the repository stubbed out
+    private ReservationsService service() {
+        return new ReservationsServiceImpl(reservations, Mockito.mock(ReservationTotals.class),
+            Mockito.mock(ReservationEventHandler.class), new ReservationCache(100, 60, 5, 100, new MetricRegistry()),
+            new ReservationNameFilter(reservations, 100, 0.01, new MetricRegistry()), new LanguageCounts(reservations),
+            new SingleFlight("reads", new MetricRegistry()), Mockito.mock(ReservationChangeLog.class));
+    }
 }
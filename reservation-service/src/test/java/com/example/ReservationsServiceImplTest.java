@@ -1,25 +1,51 @@
 package com.example;
 
+import static com.example.BatchItemResult.Status.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
+import com.codahale.metrics.MetricRegistry;
+import com.querydsl.core.types.Predicate;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public class ReservationsServiceImplTest {
 
 	ReservationsRepository repository = Mockito.mock(ReservationsRepository.class);
-	ReservationsServiceImpl reservations = new ReservationsServiceImpl(repository);
+	ReservationEventHandler events = Mockito.mock(ReservationEventHandler.class);
+	ReservationCache cache = new ReservationCache(100, 60, 5, 100, new MetricRegistry());
+	ReservationNameFilter names = new ReservationNameFilter(repository, 100, 0.01, new MetricRegistry());
+	LanguageCounts langs = new LanguageCounts(repository);
+	ReservationsServiceImpl reservations = new ReservationsServiceImpl(repository,
+		Mockito.mock(ReservationTotals.class), events, cache, names, langs,
+		new SingleFlight("reads", new MetricRegistry()), Mockito.mock(ReservationChangeLog.class));
 
 	@Test
 	public void should_not_allow_to_change_name_to_existing_one() throws Exception {
 		// given
 		Long id = 5L;
 		Reservation reservation = new Reservation(id, "Jan", "Java");
-		when(repository.findOne(id)).thenReturn(reservation);
-		when(repository.findByName("Jan")).thenReturn(Optional.of(reservation));
+		when(repository.findCurrentViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+		when(repository.update(id, 0L, "Jan", "Java")).thenThrow(nameConflict());
 
 		// when
 		Throwable thrown = catchThrowable(() -> reservations.update(id, reservation));
@@ -28,4 +54,464 @@ public class ReservationsServiceImplTest {
 		assertThat(thrown).isInstanceOf(ReservationAlreadyExists.class);
 		assertThat(thrown.getMessage()).isEqualTo("Reservation for name 'Jan' already exists!");
 	}
+
+	@Test
+	public void should_report_conflicts_in_batch() throws Exception {
+		// given
+		when(repository.findExistingNames(anyCollection())).thenReturn(Collections.singleton("Jan"));
+
+		// when
+		List<BatchItemResult> results = reservations.createAll(Arrays.asList(
+			new Reservation("Jan", "Java"),
+			new Reservation("Marek", "Java"),
+			new Reservation("Marek", "C++")));
+
+		// then
+		assertThat(results).extracting(BatchItemResult::getStatus)
+			.containsExactly(CONFLICT, CREATED, CONFLICT);
+		assertThat(results).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2);
+	}
+
+	@Test
+	public void should_translate_unique_constraint_violation_on_create() throws Exception {
+		// given
+		Reservation reservation = new Reservation("Jan", "Java");
+		when(repository.saveAndFlush(reservation)).thenThrow(nameConflict());
+
+		// when
+		Throwable thrown = catchThrowable(() -> reservations.create(reservation));
+
+		// then
+		assertThat(thrown).isInstanceOf(ReservationAlreadyExists.class);
+		verify(repository, never()).findByName("Jan");
+	}
+
+	@Test
+	public void should_count_reservations_created_through_service() throws Exception {
+		// given
+		Reservation reservation = new Reservation("Jan", "Java");
+		when(repository.saveAndFlush(reservation)).thenReturn(new Reservation(5L, "Jan", "Java"));
+
+		// when
+		reservations.create(reservation);
+		reservations.createAll(Arrays.asList(new Reservation("Marek", "Java"), new Reservation("Ola", "C++")));
+
+		// then
+		verify(events).created(1);
+		verify(events).created(2);
+	}
+
+	@Test
+	public void should_recognize_name_conflict_under_generated_constraint_name() throws Exception {
+		// given
+		String constraint = "UK_7WX1DQ8BV52CGQS4WB1E1RHSR_INDEX_8";
+		DataIntegrityViolationException ex = new DataIntegrityViolationException("duplicate",
+			new ConstraintViolationException("duplicate", new SQLException("Unique index or primary key violation: \""
+				+ constraint + " ON PUBLIC.RESERVATION(NAME) VALUES ('Jan', 1)\""), constraint));
+
+		// when
+		boolean conflict = ReservationsServiceImpl.isNameConflict(ex);
+
+		// then
+		assertThat(conflict).isTrue();
+	}
+
+	@Test
+	public void should_update_with_client_version_in_single_statement() throws Exception {
+		// given
+		Long id = 5L;
+		Reservation reservation = new Reservation(id, "Jan", null);
+		reservation.setVersion(3L);
+		when(repository.update(id, 3L, "Jan", null)).thenReturn(1L);
+
+		// when
+		reservations.update(id, reservation);
+
+		// then
+		verify(repository).update(id, 3L, "Jan", null);
+		verify(repository, never()).findCurrentViewById(id);
+	}
+
+	@Test
+	public void should_update_unchanged_lang_without_reading() throws Exception {
+		// given
+		Long id = 5L;
+		Reservation reservation = new Reservation(id, "Janek", "Java");
+		reservation.setVersion(3L);
+		when(repository.updateKeepingLang(id, 3L, "Janek", "Java")).thenReturn(1L);
+
+		// when
+		reservations.update(id, reservation);
+
+		// then
+		verify(repository, never()).findCurrentViewById(id);
+		verify(repository, never()).update(anyLong(), anyLong(), anyString(), anyString());
+	}
+
+	@Test
+	public void should_move_language_count_when_client_version_changes_lang() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.countByLang()).thenReturn(Arrays.asList(new Object[] { "Java", 2L }, new Object[] { "C++", 1L }));
+		langs.rebuild();
+		when(repository.findCurrentViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 3L)));
+		when(repository.update(id, 3L, null, "C++")).thenReturn(1L);
+		Reservation reservation = new Reservation(id, null, "C++");
+		reservation.setVersion(3L);
+
+		// when
+		reservations.update(id, reservation);
+
+		// then
+		assertThat(reservations.countByLang()).containsEntry("Java", 1L).containsEntry("C++", 2L);
+	}
+
+	@Test
+	public void should_report_not_found_on_update() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.findCurrentViewById(id)).thenReturn(Optional.empty());
+
+		// when
+		Throwable thrown = catchThrowable(() -> reservations.update(id, new Reservation("Jan", "Java")));
+
+		// then
+		assertThat(thrown).isInstanceOf(ReservationNotFound.class);
+	}
+
+	@Test
+	public void should_give_up_after_repeated_version_conflicts() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.findCurrentViewById(id)).thenReturn(
+			Optional.of(new ReservationView(id, "Jan", "Java", 1L)),
+			Optional.of(new ReservationView(id, "Jan", "Java", 2L)),
+			Optional.of(new ReservationView(id, "Jan", "Java", 3L)));
+
+		// when
+		Throwable thrown = catchThrowable(() -> reservations.update(id, new Reservation("Jan", "Java")));
+
+		// then
+		assertThat(thrown).isInstanceOf(ReservationVersionConflict.class);
+		verify(repository, times(ReservationsServiceImpl.MAX_UPDATE_ATTEMPTS)).update(eq(id), anyLong(), eq("Jan"), eq("Java"));
+	}
+
+	@Test
+	public void should_delete_without_loading() throws Exception {
+		// given
+		when(repository.deleteReturningLangs(anyCollection())).thenReturn(Arrays.asList("Java", "C++"));
+
+		// when
+		int deleted = reservations.deleteAll(Arrays.asList(1L, 2L, 2L, 3L));
+
+		// then
+		assertThat(deleted).isEqualTo(2);
+		verify(repository).deleteReturningLangs(anyCollection());
+		verify(repository, never()).findOne(anyLong());
+		verify(events).deleted(2);
+	}
+
+	@Test
+	public void should_delete_in_single_statement_taking_language_from_cache() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.countByLang()).thenReturn(Collections.singletonList(new Object[] { "Java", 2L }));
+		langs.rebuild();
+		when(repository.findViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+		when(repository.deleteById(id)).thenReturn(1);
+		reservations.findView(id);
+
+		// when
+		reservations.delete(id);
+
+		// then
+		assertThat(reservations.countByLang()).containsEntry("Java", 1L);
+		verify(repository).deleteById(id);
+		verify(repository, times(1)).findViewById(id);
+	}
+
+	@Test
+	public void should_report_not_found_on_delete() throws Exception {
+		// given
+		when(repository.deleteById(5L)).thenReturn(0);
+
+		// when
+		Throwable thrown = catchThrowable(() -> reservations.delete(5L));
+
+		// then
+		assertThat(thrown).isInstanceOf(ReservationNotFound.class);
+		verify(events, never()).deleted(anyInt());
+	}
+
+	@Test
+	public void should_keep_pages_when_deleting_missing_id() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.findViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+		when(repository.deleteById(id)).thenReturn(0);
+		reservations.findView(id);
+		String before = reservations.listVersion();
+
+		// when
+		catchThrowable(() -> reservations.delete(id));
+
+		// then
+		assertThat(reservations.listVersion()).isEqualTo(before);
+		assertThat(reservations.findCachedView(id).isPresent()).isFalse();
+	}
+
+	@Test
+	public void should_serve_view_from_cache_until_updated() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.findViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+		when(repository.update(id, 0L, "Janek", null)).thenReturn(1L);
+		reservations.findView(id);
+		reservations.findView(id);
+
+		// when
+		Reservation update = new Reservation(id, "Janek", null);
+		update.setVersion(0L);
+		reservations.update(id, update);
+		reservations.findView(id);
+
+		// then
+		verify(repository, times(2)).findViewById(id);
+	}
+
+	@Test
+	public void should_evict_view_read_between_update_and_commit() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.findViewById(id)).thenReturn(
+			Optional.of(new ReservationView(id, "Jan", "Java", 0L)),
+			Optional.of(new ReservationView(id, "Janek", "Java", 1L)));
+		when(repository.update(id, 0L, "Janek", null)).thenReturn(1L);
+		Reservation update = new Reservation(id, "Janek", null);
+		update.setVersion(0L);
+
+		// when
+		inTransaction(() -> reservations.update(id, update), () -> reservations.findView(id));
+		ReservationView view = reservations.findView(id).get();
+
+		// then
+		assertThat(view.getVersion()).isEqualTo(1L);
+	}
+
+	@Test
+	public void should_skip_name_lookup_for_names_filter_rules_out() throws Exception {
+		// given
+		when(repository.streamAllNames()).thenReturn(Stream.of("Jan"));
+		names.rebuild();
+		when(repository.findExistingNames(anyCollection())).thenReturn(Collections.singleton("Jan"));
+
+		// when
+		List<BatchItemResult> results = reservations.createAll(Arrays.asList(
+			new Reservation("Jan", "Java"),
+			new Reservation("Marek", "Java")));
+
+		// then
+		assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(CONFLICT, CREATED);
+		verify(repository).findExistingNames(Collections.singleton("Jan"));
+	}
+
+	@Test
+	public void should_rate_false_positives_among_absent_names() throws Exception {
+		// given
+		when(repository.streamAllNames()).thenReturn(Stream.of("Jan"));
+		names.rebuild();
+		when(repository.findExistingNames(anyCollection())).thenReturn(Collections.emptySet());
+
+		// when
+		reservations.createAll(Arrays.asList(
+			new Reservation("Jan", "Java"),
+			new Reservation("Marek", "Java"),
+			new Reservation("Ola", "Java")));
+
+		// then
+		assertThat(names.falsePositiveRate()).isEqualTo(1.0 / 3);
+	}
+
+	@Test
+	public void should_not_rate_lookups_before_first_filter_build() throws Exception {
+		// given
+		when(repository.findExistingNames(anyCollection())).thenReturn(Collections.emptySet());
+
+		// when
+		reservations.createAll(Arrays.asList(new Reservation("Jan", "Java"), new Reservation("Marek", "Java")));
+
+		// then
+		assertThat(names.falsePositiveRate()).isZero();
+	}
+
+	@Test
+	public void should_keep_names_put_while_filter_rebuilds() throws Exception {
+		// given
+		when(repository.streamAllNames()).thenReturn(Stream.of("Jan"));
+		names.rebuild();
+		when(repository.streamAllNames()).thenReturn(Stream.of("Jan").peek(name -> names.put("Marek")));
+
+		// when
+		names.rebuild();
+
+		// then
+		assertThat(names.mightContain("Marek")).isTrue();
+	}
+
+	@Test
+	public void should_remember_missing_view_until_created() throws Exception {
+		// given
+		Long id = 5L;
+		Reservation reservation = new Reservation("Jan", "Java");
+		when(repository.findViewById(id)).thenReturn(Optional.empty());
+		when(repository.saveAndFlush(reservation)).thenReturn(new Reservation(id, "Jan", "Java"));
+		reservations.findView(id);
+		reservations.findView(id);
+
+		// when
+		reservations.create(reservation);
+		reservations.findView(id);
+
+		// then
+		verify(repository, times(2)).findViewById(id);
+	}
+
+	@Test
+	public void should_not_remember_id_created_while_it_was_loading() throws Exception {
+		// given
+		Long id = 5L;
+		long before = cache.generation();
+		AtomicReference<CompletableFuture<Void>> commit = new AtomicReference<>();
+		when(repository.findViewById(id)).thenAnswer(invocation -> {
+			// the create commits after this lookup missed its row but before the miss is recorded
+			commit.set(CompletableFuture.runAsync(() -> cache.invalidate(id)));
+			while (cache.generation() == before) {
+				Thread.yield();
+			}
+			return Optional.empty();
+		}).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+
+		// when
+		reservations.findView(id);
+		commit.get().get(5, TimeUnit.SECONDS);
+		Optional<ReservationView> view = reservations.findView(id);
+
+		// then
+		assertThat(view.isPresent()).isTrue();
+	}
+
+	@Test
+	public void should_serve_pages_from_cache_until_next_write() throws Exception {
+		// given
+		PageRequest pageable = new PageRequest(0, 20);
+		when(repository.findViews(any(Predicate.class), eq(pageable))).thenReturn(new PageImpl<>(Collections.emptyList()));
+		when(repository.deleteById(5L)).thenReturn(1);
+		reservations.findAll("Jan", null, pageable);
+		reservations.findAll("JAN", null, pageable);
+
+		// when
+		reservations.delete(5L);
+		reservations.findAll("jan", null, pageable);
+
+		// then
+		verify(repository, times(2)).findViews(any(Predicate.class), eq(pageable));
+	}
+
+	@Test
+	public void should_keep_pages_and_list_version_until_write_commits() throws Exception {
+		// given
+		PageRequest pageable = new PageRequest(0, 20);
+		when(repository.findViews(any(Predicate.class), eq(pageable))).thenReturn(new PageImpl<>(Collections.emptyList()));
+		when(repository.deleteById(5L)).thenReturn(1);
+		String before = reservations.listVersion();
+		AtomicReference<String> during = new AtomicReference<>();
+
+		// when
+		inTransaction(() -> reservations.delete(5L), () -> {
+			during.set(reservations.listVersion());
+			reservations.findAll("Jan", null, pageable);
+		});
+		reservations.findAll("Jan", null, pageable);
+
+		// then
+		assertThat(during.get()).isEqualTo(before);
+		assertThat(reservations.listVersion()).isNotEqualTo(before);
+		verify(repository, times(2)).findViews(any(Predicate.class), eq(pageable));
+	}
+
+	@Test
+	public void should_not_join_read_started_before_a_commit() throws Exception {
+		// given
+		PageRequest pageable = new PageRequest(0, 20);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(repository.findViewSlice(any(Predicate.class), eq(pageable))).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return new SliceImpl<>(Collections.emptyList());
+		}).thenReturn(new SliceImpl<>(Collections.emptyList()));
+		CompletableFuture<?> before = CompletableFuture.runAsync(() -> reservations.findSlice("Jan", null, pageable));
+		loading.await(5, TimeUnit.SECONDS);
+
+		// when
+		cache.invalidate(6L);
+		reservations.findSlice("Jan", null, pageable);
+		release.countDown();
+		before.get(5, TimeUnit.SECONDS);
+
+		// then
+		verify(repository, times(2)).findViewSlice(any(Predicate.class), eq(pageable));
+	}
+
+	@Test
+	public void should_move_language_count_on_update() throws Exception {
+		// given
+		Long id = 5L;
+		when(repository.countByLang()).thenReturn(Arrays.asList(new Object[] { "Java", 2L }, new Object[] { "C++", 1L }));
+		langs.rebuild();
+		when(repository.findCurrentViewById(id)).thenReturn(Optional.of(new ReservationView(id, "Jan", "Java", 0L)));
+		when(repository.update(id, 0L, null, "C++")).thenReturn(1L);
+
+		// when
+		reservations.update(id, new Reservation(id, null, "C++"));
+
+		// then
+		assertThat(reservations.countByLang()).containsEntry("Java", 1L).containsEntry("C++", 2L);
+	}
+
+	@Test
+	public void should_keep_language_counts_until_write_commits() throws Exception {
+		// given
+		Reservation reservation = new Reservation("Jan", "Java");
+		when(repository.countByLang()).thenReturn(Collections.singletonList(new Object[] { "Java", 2L }));
+		langs.rebuild();
+		when(repository.saveAndFlush(reservation)).thenReturn(reservation);
+		AtomicReference<Map<String, Long>> during = new AtomicReference<>();
+
+		// when
+		inTransaction(() -> reservations.create(reservation), () -> during.set(reservations.countByLang()));
+
+		// then
+		assertThat(during.get()).containsEntry("Java", 2L);
+		assertThat(reservations.countByLang()).containsEntry("Java", 3L);
+	}
+
+	// runs work as the body of a transaction and concurrently on another thread before it commits
+	private static void inTransaction(Runnable work, Runnable concurrently) throws Exception {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			work.run();
+			CompletableFuture.runAsync(concurrently).get(5, TimeUnit.SECONDS);
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private static DataIntegrityViolationException nameConflict() {
+		return new DataIntegrityViolationException("duplicate",
+			new ConstraintViolationException("duplicate", null, "UK_RESERVATION_NAME_INDEX_8"));
+	}
 }
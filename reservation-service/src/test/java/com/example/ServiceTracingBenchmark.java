@@ -0,0 +1,82 @@
+package com.example;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A {@code findAll} returning a 20-element page, called directly, through the INFO logging proxy {@link ServiceConfig}
+ * used to install, and through {@link ServiceTracing} sampling 1% of calls. The logging proxy writes its lines through
+ * whatever logging is configured, console by default, as it did in the application. Run with the GC profiler, so
+ * allocation per call is reported next to the time.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServiceTracingBenchmark {
+
+	Pageable pageable = new PageRequest(0, 20);
+
+	ReservationsService direct;
+
+	ReservationsService loggingProxy;
+
+	ReservationsService tracingProxy;
+
+	@Setup
+	public void setUp() {
+		Page<ReservationView> page = new PageImpl<>(IntStream.range(0, 20)
+			.mapToObj(i -> new ReservationView((long) i, "Reservation " + i, "Java", 0L))
+			.collect(Collectors.toList()), pageable, 1000);
+		direct = (ReservationsService) Proxy.newProxyInstance(ReservationsService.class.getClassLoader(),
+			new Class<?>[] { ReservationsService.class }, (proxy, method, args) -> page);
+		ReservationsService target = direct;
+		loggingProxy = (ReservationsService) Proxy.newProxyInstance(ReservationsService.class.getClassLoader(),
+			new Class<?>[] { ReservationsService.class },
+			(Object proxy, Method method, Object[] args) -> {
+				log.info("BEFORE method {}", method.getName());
+				Object result = method.invoke(target, args);
+				log.info("AFTER method {}. RETURNED {}", method.getName(), result);
+				return result;
+			});
+		ServiceTracingConfig config = new ServiceTracingConfig();
+		config.setSampleRate(0.01);
+		tracingProxy = ServiceTracing.proxy(ReservationsService.class, target, config);
+	}
+
+	@Benchmark
+	public Page<ReservationView> direct() {
+		return direct.findAll("jan", "java", pageable);
+	}
+
+	@Benchmark
+	public Page<ReservationView> loggingProxy() {
+		return loggingProxy.findAll("jan", "java", pageable);
+	}
+
+	@Benchmark
+	public Page<ReservationView> tracingProxy() {
+		return tracingProxy.findAll("jan", "java", pageable);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(ServiceTracingBenchmark.class, GCProfiler.class);
+	}
+}
@@ -0,0 +1,75 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+
+public class ServiceTracingTest {
+
+	ReservationsService target = Mockito.mock(ReservationsService.class);
+	ServiceTracingConfig config = new ServiceTracingConfig();
+
+	@Test
+	public void should_not_proxy_when_disabled() throws Exception {
+		// given
+		config.setEnabled(false);
+
+		// when
+		ReservationsService service = ServiceTracing.wrap(ReservationsService.class, target, config);
+
+		// then
+		assertThat(service).isSameAs(target);
+	}
+
+	@Test
+	public void should_not_proxy_while_trace_logging_is_off() throws Exception {
+		// given
+		config.setSampleRate(1.0);
+
+		// when
+		ReservationsService service = ServiceTracing.wrap(ReservationsService.class, target, config);
+
+		// then
+		assertThat(service).isSameAs(target);
+	}
+
+	@Test
+	public void should_rethrow_target_exception_unwrapped() throws Exception {
+		// given
+		config.setSampleRate(1.0);
+		doThrow(new ReservationNotFound(1L)).when(target).delete(1L);
+		ReservationsService service = ServiceTracing.proxy(ReservationsService.class, target, config);
+
+		// when
+		Throwable thrown = catchThrowable(() -> service.delete(1L));
+
+		// then
+		assertThat(thrown).isInstanceOf(ReservationNotFound.class);
+	}
+
+	@Test
+	public void should_render_only_first_elements_of_page() throws Exception {
+		// given
+		config.setSampleRate(1.0);
+		config.setMaxElements(2);
+		ReservationsService service = ServiceTracing.proxy(ReservationsService.class, target, config);
+		ServiceTracing tracing = (ServiceTracing) Proxy.getInvocationHandler(service);
+
+		// when
+		String rendered = tracing.render(new PageImpl<>(IntStream.range(0, 1000).boxed().collect(Collectors.toList())));
+
+		// then
+		assertThat(rendered).isEqualTo("PageImpl(number=0, size=1000) [0, 1, ... (1000 total)]");
+		assertThat(tracing.render(Collections.singletonList(String.join("", Collections.nCopies(1000, "x")))))
+			.hasSize(260)
+			.endsWith("x...]");
+	}
+}
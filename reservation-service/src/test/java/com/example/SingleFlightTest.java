@@ -0,0 +1,66 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	MetricRegistry registry = new MetricRegistry();
+	SingleFlight flights = new SingleFlight("test", registry);
+
+	@Test
+	public void should_share_result_of_concurrent_identical_calls() throws Exception {
+		// given
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> flights.run("key", () -> {
+			executions.incrementAndGet();
+			started.countDown();
+			await(release);
+			return "result";
+		}));
+		started.await(5, TimeUnit.SECONDS);
+
+		// when
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> flights.run("key", () -> {
+			executions.incrementAndGet();
+			return "other";
+		}));
+		while (registry.counter("single-flight.test.coalesced").getCount() == 0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		// then
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(executions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void should_run_again_once_previous_call_completed() throws Exception {
+		// when
+		flights.run("key", () -> "first");
+		String result = flights.run("key", () -> "second");
+
+		// then
+		assertThat(result).isEqualTo("second");
+		assertThat(registry.counter("single-flight.test.coalesced").getCount()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
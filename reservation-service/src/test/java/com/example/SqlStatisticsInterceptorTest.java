@@ -0,0 +1,118 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SqlStatisticsInterceptorTest {
+
+	static final String INSERT = "insert into sql_probe (id, name) values (?, ?)";
+
+	static final String SELECT = "select name from sql_probe where id > ?";
+
+	static final String SELECT_ALL = "select id from sql_probe order by id";
+
+	static final String BROKEN = "insert into sql_probe_missing values (1)";
+
+	DataSource dataSource = new DataSource();
+
+	@Before
+	public void setUp() throws Exception {
+		// the pool creates its interceptors itself, so they record into the shared instance other tests use as well
+		SqlStatistics.shared().configure(TimeUnit.SECONDS.toNanos(10), Integer.MAX_VALUE);
+		dataSource.setDriverClassName("org.h2.Driver");
+		dataSource.setUrl("jdbc:h2:mem:sql-statistics;DB_CLOSE_DELAY=-1");
+		dataSource.setJdbcInterceptors(SqlStatisticsInterceptor.class.getName());
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("create table sql_probe (id bigint primary key, name varchar(255))");
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("drop table sql_probe");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void should_record_calls_and_rows_per_statement_shape() throws Exception {
+		// given
+		Map<String, Object> insertsBefore = describe(INSERT);
+		Map<String, Object> selectsBefore = describe(SELECT);
+		Map<String, Object> scansBefore = describe(SELECT_ALL);
+
+		// when
+		try (Connection connection = dataSource.getConnection()) {
+			try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+				for (long id = 1; id <= 3; id++) {
+					insert.setLong(1, id);
+					insert.setString(2, "Reservation " + id);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			}
+			try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+				select.setLong(1, 1);
+				try (ResultSet results = select.executeQuery()) {
+					while (results.next()) {
+						results.getString(1);
+					}
+				}
+			}
+			try (Statement scan = connection.createStatement()) {
+				scan.execute(SELECT_ALL);
+				try (ResultSet results = scan.getResultSet()) {
+					while (results.next()) {
+						results.getLong(1);
+					}
+				}
+			}
+		}
+
+		// then
+		assertThat(delta(describe(INSERT), insertsBefore, "calls")).isEqualTo(1L);
+		assertThat(delta(describe(INSERT), insertsBefore, "rows")).isEqualTo(3L);
+		assertThat(delta(describe(SELECT), selectsBefore, "calls")).isEqualTo(1L);
+		assertThat(delta(describe(SELECT), selectsBefore, "rows")).isEqualTo(2L);
+		assertThat(delta(describe(SELECT_ALL), scansBefore, "calls")).isEqualTo(1L);
+		assertThat(delta(describe(SELECT_ALL), scansBefore, "rows")).isEqualTo(3L);
+	}
+
+	@Test
+	public void should_record_failed_executions() throws Exception {
+		// given
+		Map<String, Object> before = describe(BROKEN);
+
+		// when
+		Throwable thrown;
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			thrown = catchThrowable(() -> statement.executeUpdate(BROKEN));
+		}
+
+		// then
+		assertThat(thrown).isInstanceOf(SQLException.class);
+		assertThat(delta(describe(BROKEN), before, "calls")).isEqualTo(1L);
+		assertThat(delta(describe(BROKEN), before, "failures")).isEqualTo(1L);
+	}
+
+	private static Map<String, Object> describe(String sql) {
+		return SqlStatistics.shared().shape(sql).describe();
+	}
+
+	private static long delta(Map<String, Object> after, Map<String, Object> before, String key) {
+		return (Long) after.get(key) - (Long) before.get(key);
+	}
+}
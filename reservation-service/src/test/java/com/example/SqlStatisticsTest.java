@@ -0,0 +1,62 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SqlStatisticsTest {
+
+	SqlStatistics statistics = new SqlStatistics();
+
+	@Test
+	public void should_group_statements_differing_only_in_values() throws Exception {
+		// when
+		SqlStatistics.Shape first = statistics.shape("select * from reservation where id in (?, ?) and name = 'Jan'");
+		SqlStatistics.Shape second = statistics.shape("select *  from reservation where id in (?, ?, ?) and name = 'Tom'");
+
+		// then
+		assertThat(first).isSameAs(second);
+		assertThat(SqlStatistics.normalize("delete from reservation where id=42"))
+			.isEqualTo("delete from reservation where id=?");
+	}
+
+	@Test
+	public void should_rank_statements_by_total_time_and_p99() throws Exception {
+		// given
+		SqlStatistics.Shape frequent = statistics.shape("select name from reservation");
+		SqlStatistics.Shape slow = statistics.shape("select count(*) from reservation");
+		for (int i = 0; i < 100; i++) {
+			statistics.record(frequent, "select name from reservation", TimeUnit.MILLISECONDS.toNanos(2), 10, false);
+		}
+		statistics.record(slow, "select count(*) from reservation", TimeUnit.MILLISECONDS.toNanos(50), 1, false);
+
+		// when
+		List<Map<String, Object>> byTotal = statistics.top(10, "totalMs");
+		List<Map<String, Object>> byP99 = statistics.top(1, "p99Ms");
+
+		// then
+		assertThat(byTotal).extracting(shape -> shape.get("sql"))
+			.containsExactly("select name from reservation", "select count(*) from reservation");
+		assertThat(byTotal.get(0)).containsEntry("calls", 100L).containsEntry("rows", 1000L);
+		assertThat(byP99).extracting(shape -> shape.get("sql")).containsExactly("select count(*) from reservation");
+	}
+
+	@Test
+	public void should_count_new_shapes_as_overflow_once_full() throws Exception {
+		// given
+		statistics.configure(TimeUnit.SECONDS.toNanos(1), 1);
+		statistics.shape("select name from reservation");
+
+		// when
+		SqlStatistics.Shape overflow = statistics.shape("select lang from reservation");
+
+		// then
+		assertThat(statistics.top(10, "totalMs")).extracting(shape -> shape.get("sql"))
+			.contains(SqlStatistics.OVERFLOW);
+		assertThat(overflow).isSameAs(statistics.shape("select id from reservation"));
+	}
+}
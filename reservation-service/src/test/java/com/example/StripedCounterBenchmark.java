@@ -0,0 +1,49 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+
+/**
+ * 32 threads incrementing the same counter: Boot's Dropwizard-backed counter service, which the striped services
+ * replaced, against {@link StripedMetricServices} and the {@link ReservationCount} adjustment every write makes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(32)
+public class StripedCounterBenchmark {
+
+	DropwizardMetricServices dropwizard = new DropwizardMetricServices(new MetricRegistry());
+
+	StripedMetricServices striped = new StripedMetricServices(new MetricRegistry());
+
+	ReservationCount count = new ReservationCount(null, new MetricRegistry());
+
+	@Benchmark
+	public void dropwizardCounterService() {
+		dropwizard.increment("create");
+	}
+
+	@Benchmark
+	public void stripedCounterService() {
+		striped.increment("create");
+	}
+
+	@Benchmark
+	public void reservationCount() {
+		count.add(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Benchmarks.run(StripedCounterBenchmark.class);
+	}
+}
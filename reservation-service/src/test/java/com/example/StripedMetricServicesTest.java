@@ -0,0 +1,103 @@
+package com.example;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.graphite.Graphite;
+import com.codahale.metrics.graphite.GraphiteReporter;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class StripedMetricServicesTest {
+
+	MetricRegistry registry = new MetricRegistry();
+	StripedMetricServices metrics = new StripedMetricServices(registry);
+
+	@Test
+	public void should_not_lose_increments_from_32_threads() throws Exception {
+		// given
+		int threads = 32;
+		int increments = 10_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+
+		// when
+		for (int i = 0; i < threads; i++) {
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				for (int j = 0; j < increments; j++) {
+					metrics.increment("create");
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		executor.awaitTermination(30, TimeUnit.SECONDS);
+
+		// then
+		assertThat(metrics.count("create")).isEqualTo((long) threads * increments);
+		assertThat(registry.getCounters().get("counter.create").getCount()).isEqualTo((long) threads * increments);
+	}
+
+	@Test
+	public void should_count_batch_in_one_update() throws Exception {
+		// given
+		ReservationEventHandler events = new ReservationEventHandler(metrics, Mockito.mock(ReservationCount.class));
+
+		// when
+		events.deleted(3);
+
+		// then
+		assertThat(metrics.count("delete")).isEqualTo(3L);
+	}
+
+	@Test
+	public void should_report_counters_to_graphite_as_counters() throws Exception {
+		// given
+		Graphite graphite = Mockito.mock(Graphite.class);
+		GraphiteReporter reporter = GraphiteReporter.forRegistry(registry).build(graphite);
+		metrics.increment("create");
+
+		// when
+		reporter.report();
+
+		// then
+		verify(graphite).send(eq("counter.create.count"), eq("1"), anyLong());
+	}
+
+	@Test
+	public void should_treat_prefixed_and_bare_names_as_one_metric() throws Exception {
+		// when
+		metrics.increment("create");
+		metrics.increment("counter.create");
+		metrics.submit("response.custom-reservations", 1.0);
+		metrics.submit("gauge.response.custom-reservations", 2.0);
+
+		// then
+		assertThat(metrics.count("create")).isEqualTo(2L);
+		assertThat(registry.getCounters().get("counter.create").getCount()).isEqualTo(2L);
+		assertThat(registry.getGauges().get("gauge.response.custom-reservations").getValue()).isEqualTo(2.0);
+	}
+
+	@Test
+	public void should_bridge_gauges_and_resets_to_registry() throws Exception {
+		// when
+		metrics.submit("response.custom-reservations", 12.5);
+		metrics.increment("counter.delete");
+		metrics.reset("counter.delete");
+
+		// then
+		assertThat(registry.getGauges().get("gauge.response.custom-reservations").getValue()).isEqualTo(12.5);
+		assertThat(registry.getCounters().get("counter.delete").getCount()).isZero();
+	}
+}